@@ -0,0 +1,234 @@
+package com.library.booklibrary.benchmark;
+
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.catalog.CommitQueue;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.BookServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//service operations against a generated catalog held in memory. Throughput gives ops/s, sample time the latency
+//percentiles, and the gc profiler added by the jmh profile the allocation rate
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BookServiceBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000"})
+    public int bookCount;
+
+    private BookServiceImpl bookService;
+
+    private List<Book> books;
+
+    private long[] availableGuids;
+
+    private final AtomicLong nextGuid = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void createCatalog() throws ServiceException {
+        books = SyntheticCatalog.createBooks(bookCount, SEED);
+        List<BookReservation> reservations = SyntheticCatalog.createReservations(books, SEED);
+
+        BookCatalog bookCatalog = new BookCatalog(new InMemoryCatalogStorage(books, reservations),
+                new CommitQueue(0, 1));
+        bookCatalog.getReservations();
+        //no client limit, a single benchmark client takes books over and over
+        bookService = new BookServiceImpl(bookCatalog, 2, Integer.MAX_VALUE);
+
+        Set<Long> reservedGuids = new HashSet<>();
+        reservations.forEach(reservation -> reservedGuids.add(reservation.getBookGuid()));
+        availableGuids = books.stream()
+                .mapToLong(Book::getGuid)
+                .filter(guid -> !reservedGuids.contains(guid))
+                .toArray();
+
+        nextGuid.set(SyntheticCatalog.guidOf(bookCount));
+    }
+
+    @Benchmark
+    public Book getBookByGuid(RandomSource random) throws ServiceException {
+        return bookService.getBookByGuid(books.get(random.nextIndex(books.size())).getGuid());
+    }
+
+    @Benchmark
+    public List<Book> listAllBooksByFilter(FilterCombination filter) throws ServiceException {
+        return bookService.listAllBooksByFilter(filter.name,
+                filter.author,
+                filter.category,
+                filter.language,
+                filter.isbn,
+                filter.onlyTaken,
+                filter.onlyAvailable);
+    }
+
+    @Benchmark
+    public BookReservation takeBook(AvailableBook book) throws ServiceException {
+        return bookService.takeBook(book.guid, newReservation(book.guid));
+    }
+
+    @Benchmark
+    public BookReservation returnBook(TakenBook book) throws ServiceException {
+        return bookService.returnBook(book.guid);
+    }
+
+    @Benchmark
+    public Book createBook(NewBook book) throws ServiceException {
+        return bookService.createBook(book.book);
+    }
+
+    @Benchmark
+    public void deleteBookByGuid(CreatedBook book) throws ServiceException {
+        bookService.deleteBookByGuid(book.guid);
+    }
+
+    private static BookReservation newReservation(long guid) {
+        return new BookReservation(guid, "Benchmark Client", LocalDate.now().plusDays(7));
+    }
+
+    private Book newBook(RandomSource random) {
+        Book template = books.get(random.nextIndex(books.size()));
+        return new Book(template.getName(),
+                template.getAuthor(),
+                template.getCategory(),
+                template.getLanguage(),
+                template.getPublicationDate(),
+                template.getIsbn(),
+                nextGuid.getAndIncrement());
+    }
+
+    @State(Scope.Thread)
+    public static class RandomSource {
+
+        private final SplittableRandom random = new SplittableRandom(SEED);
+
+        private int nextIndex(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    //every change is undone outside the measured call, so the catalog keeps its size and the timings hold only the
+    //operation itself. Undoing a creation may compact the slots, which then isn't counted either
+
+    //an available book, returned again after the invocation
+    @State(Scope.Thread)
+    public static class AvailableBook {
+
+        private long guid;
+
+        @Setup(Level.Invocation)
+        public void pick(BookServiceBenchmark benchmark, RandomSource random) {
+            guid = benchmark.availableGuids[random.nextIndex(benchmark.availableGuids.length)];
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(BookServiceBenchmark benchmark) throws ServiceException {
+            benchmark.bookService.returnBook(guid);
+        }
+    }
+
+    //an available book, taken before the invocation
+    @State(Scope.Thread)
+    public static class TakenBook {
+
+        private long guid;
+
+        @Setup(Level.Invocation)
+        public void take(BookServiceBenchmark benchmark, RandomSource random) throws ServiceException {
+            guid = benchmark.availableGuids[random.nextIndex(benchmark.availableGuids.length)];
+            benchmark.bookService.takeBook(guid, newReservation(guid));
+        }
+    }
+
+    //a copy of a random book under a new guid, deleted again after the invocation
+    @State(Scope.Thread)
+    public static class NewBook {
+
+        private Book book;
+
+        @Setup(Level.Invocation)
+        public void create(BookServiceBenchmark benchmark, RandomSource random) {
+            book = benchmark.newBook(random);
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(BookServiceBenchmark benchmark) throws ServiceException {
+            benchmark.bookService.deleteBookByGuid(book.getGuid());
+        }
+    }
+
+    //a copy of a random book under a new guid, added before the invocation
+    @State(Scope.Thread)
+    public static class CreatedBook {
+
+        private long guid;
+
+        @Setup(Level.Invocation)
+        public void create(BookServiceBenchmark benchmark, RandomSource random) throws ServiceException {
+            guid = benchmark.bookService.createBook(benchmark.newBook(random)).getGuid();
+        }
+    }
+
+    //filter values are taken from a book in the middle of the catalog, so every combination matches something
+    @State(Scope.Benchmark)
+    public static class FilterCombination {
+
+        @Param({"name", "author", "category", "language", "isbn", "category+language", "author+category",
+                "onlyTaken", "onlyAvailable", "category+onlyAvailable", "category+language+onlyTaken"})
+        public String combination;
+
+        private String name;
+
+        private String author;
+
+        private String category;
+
+        private String language;
+
+        private String isbn;
+
+        private boolean onlyTaken;
+
+        private boolean onlyAvailable;
+
+        @Setup(Level.Trial)
+        public void pickValues(BookServiceBenchmark benchmark) {
+            Book book = benchmark.books.get(benchmark.books.size() / 2);
+            Set<String> fields = Set.of(combination.split("\\+"));
+
+            name = fields.contains("name") ? book.getName() : null;
+            author = fields.contains("author") ? book.getAuthor() : null;
+            category = fields.contains("category") ? book.getCategory() : null;
+            language = fields.contains("language") ? book.getLanguage() : null;
+            isbn = fields.contains("isbn") ? book.getIsbn() : null;
+            onlyTaken = fields.contains("onlyTaken");
+            onlyAvailable = fields.contains("onlyAvailable");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.library.booklibrary.benchmark;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.storage.CatalogChange;
+import com.library.booklibrary.storage.CatalogContents;
+import com.library.booklibrary.storage.CatalogStorage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+//loads a generated catalog and drops every write, so service benchmarks measure the catalog and not the disk
+public class InMemoryCatalogStorage implements CatalogStorage {
+
+    private final List<Book> books;
+
+    private final List<BookReservation> reservations;
+
+    public InMemoryCatalogStorage(List<Book> books, List<BookReservation> reservations) {
+        this.books = books;
+        this.reservations = reservations;
+    }
+
+    public void loadBooks(Consumer<Book> consumer) {
+        books.forEach(consumer);
+    }
+
+    public void loadReservations(Consumer<BookReservation> consumer) {
+        reservations.forEach(consumer);
+    }
+
+    public void persist(List<CatalogChange> changes, CatalogContents contents) {
+        //nothing is stored
+    }
+
+    public void compact(CatalogContents contents) {
+        //nothing is stored
+    }
+}
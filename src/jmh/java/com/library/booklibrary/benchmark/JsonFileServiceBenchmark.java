@@ -0,0 +1,86 @@
+package com.library.booklibrary.benchmark;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.JsonFileServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//whole-file reads and writes of the books file. Every operation handles the full catalog, so ops/s times the
+//book count gives books per second
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class JsonFileServiceBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "1000000"})
+    public int bookCount;
+
+    private JsonFileServiceImpl jsonFileService;
+
+    private List<Book> books;
+
+    private Path directory;
+
+    private String readFilepath;
+
+    private String writeFilepath;
+
+    @Setup(Level.Trial)
+    public void writeCatalogFile() throws IOException, ServiceException {
+        jsonFileService = new JsonFileServiceImpl(JsonMapper.builder().findAndAddModules().build());
+        books = SyntheticCatalog.createBooks(bookCount, SEED);
+
+        directory = Files.createTempDirectory("book-library-benchmark");
+        readFilepath = directory.resolve("read-books.json").toString();
+        writeFilepath = directory.resolve("write-books.json").toString();
+        jsonFileService.writeToFile(readFilepath, books);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCatalogFiles() throws IOException {
+        Files.deleteIfExists(Path.of(readFilepath));
+        Files.deleteIfExists(Path.of(writeFilepath));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void writeToFile() throws ServiceException {
+        jsonFileService.writeToFile(writeFilepath, books);
+    }
+
+    @Benchmark
+    public List<Book> readFromFileToList() throws ServiceException {
+        return jsonFileService.readFromFileToList(readFilepath, Book.class);
+    }
+
+    //the streaming read the catalog loads with
+    @Benchmark
+    public void readFromFile(Blackhole blackhole) throws ServiceException {
+        jsonFileService.readFromFile(readFilepath, Book.class, blackhole::consume);
+    }
+}
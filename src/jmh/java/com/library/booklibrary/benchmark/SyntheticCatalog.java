@@ -0,0 +1,80 @@
+package com.library.booklibrary.benchmark;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//generated catalogs shaped like a real library: a few popular categories and languages, most authors with a
+//handful of books and about a third of the books out on reservation. The same seed always gives the same catalog
+public class SyntheticCatalog {
+
+    public static final double RESERVED_SHARE = 0.3;
+
+    private static final int CATEGORY_COUNT = 40;
+
+    private static final int LANGUAGE_COUNT = 12;
+
+    private static final int BOOKS_PER_AUTHOR = 8;
+
+    private static final int BOOKS_PER_CLIENT = 3;
+
+    private static final String[] TITLE_WORDS = {"Silent", "House", "River", "Winter", "Garden", "Stranger",
+            "Night", "Murder", "Letters", "Island", "Shadow", "Empire", "Journey", "Secret", "Light", "Storm",
+            "Kingdom", "Memory", "Glass", "Orchard", "Station", "Harbour", "Summer", "Crown"};
+
+    private static final LocalDate FIRST_PUBLICATION_DATE = LocalDate.of(1900, 1, 1);
+
+    public static List<Book> createBooks(int count, long seed) {
+        Random random = new Random(seed);
+        int authorCount = Math.max(1, count / BOOKS_PER_AUTHOR);
+        int publicationDays = (int) (LocalDate.now().toEpochDay() - FIRST_PUBLICATION_DATE.toEpochDay());
+
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(new Book(createTitle(random),
+                    "Author " + random.nextInt(authorCount),
+                    "Category " + skewedIndex(random, CATEGORY_COUNT),
+                    "Language " + skewedIndex(random, LANGUAGE_COUNT),
+                    FIRST_PUBLICATION_DATE.plusDays(random.nextInt(publicationDays)),
+                    String.format("%013d", 9780000000000L + i),
+                    guidOf(i)));
+        }
+
+        return books;
+    }
+
+    public static List<BookReservation> createReservations(List<Book> books, long seed) {
+        Random random = new Random(seed);
+        int clientCount = Math.max(1, (int) (books.size() * RESERVED_SHARE / BOOKS_PER_CLIENT));
+
+        List<BookReservation> reservations = new ArrayList<>();
+        for (Book book : books) {
+            if (random.nextDouble() < RESERVED_SHARE) {
+                reservations.add(new BookReservation(book.getGuid(),
+                        "Client " + random.nextInt(clientCount),
+                        LocalDate.now().plusDays(1 + random.nextInt(60))));
+            }
+        }
+
+        return reservations;
+    }
+
+    //guids are spread out like ones handed out by an external system, not dense from zero
+    public static long guidOf(int index) {
+        return 1_000_000L + index * 7L;
+    }
+
+    private static String createTitle(Random random) {
+        return "The " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]
+                + " " + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)];
+    }
+
+    //low indexes come up far more often than high ones
+    private static int skewedIndex(Random random, int count) {
+        return random.nextInt(random.nextInt(count) + 1);
+    }
+}
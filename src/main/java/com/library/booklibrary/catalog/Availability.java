@@ -0,0 +1,7 @@
+package com.library.booklibrary.catalog;
+
+public enum Availability {
+    ANY,
+    ONLY_TAKEN,
+    ONLY_AVAILABLE
+}
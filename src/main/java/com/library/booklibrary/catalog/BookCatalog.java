@@ -0,0 +1,899 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.storage.CatalogChange;
+import com.library.booklibrary.storage.CatalogContents;
+import com.library.booklibrary.storage.CatalogStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class BookCatalog implements CatalogContents {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookCatalog.class);
+
+    private static final int MIN_COMPACTION_SLOTS = 64;
+
+    //a column scan reads every slot, it pays off once the smallest posting list covers this share of them
+    private static final int COLUMN_SCAN_SLOT_RATIO = 8;
+
+    private static final Comparator<BookReservation> EXPIRY_ORDER =
+            Comparator.comparing(BookReservation::getTakenUntilDate);
+
+    private final CatalogStorage catalogStorage;
+
+    private final CommitQueue commitQueue;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //books are kept in slots in the order they were added. A slot number is the book's ordinal, deleted books
+    //leave an empty slot behind until the slots are compacted
+    private Book[] bookSlots = new Book[16];
+
+    private int usedSlotCount;
+
+    private final LongIntHashMap guidIndex = new LongIntHashMap();
+
+    //guids of all books in ascending order, so pages can continue from any guid without rescanning
+    private final SortedLongList guidOrder = new SortedLongList();
+
+    private final Map<BookField, FieldIndex> fieldIndexes = new EnumMap<>(BookField.class);
+
+    private final Map<BookField, DictionaryColumn> columns = new EnumMap<>(BookField.class);
+
+    private final DateColumn publicationDates = new DateColumn();
+
+    //words of the book names and authors
+    private final TokenIndex textIndex = new TokenIndex();
+
+    //whole names and authors in alphabetical order, for completing what a user has typed so far
+    private final Map<BookField, PrefixIndex> prefixIndexes = new EnumMap<>(BookField.class);
+
+    private final BitSet liveOrdinals = new BitSet();
+
+    //ordinals of the books that currently have a reservation
+    private final BitSet takenOrdinals = new BitSet();
+
+    private final Map<Long, BookReservation> reservationsByBookGuid = new LinkedHashMap<>();
+
+    private final Map<String, Integer> reservationCountsByClient = new HashMap<>();
+
+    //reservations ordered by the date they end. Removed or replaced reservations are left in the queue and skipped
+    //when they come up, unless they start to outnumber the current ones
+    private PriorityQueue<BookReservation> expiryQueue = new PriorityQueue<>(EXPIRY_ORDER);
+
+    private volatile boolean booksLoaded;
+
+    private volatile boolean reservationsLoaded;
+
+    public BookCatalog(CatalogStorage catalogStorage, CommitQueue commitQueue) {
+        this.catalogStorage = catalogStorage;
+        this.commitQueue = commitQueue;
+
+        for (BookField field : BookField.values()) {
+            fieldIndexes.put(field, new FieldIndex());
+            if (field.isColumnar()) {
+                columns.put(field, new DictionaryColumn());
+            }
+        }
+        prefixIndexes.put(BookField.NAME, new PrefixIndex());
+        prefixIndexes.put(BookField.AUTHOR, new PrefixIndex());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            compactStorage();
+        } catch (ServiceException e) {
+            //the catalog will be loaded on the first request instead, which reports the error to the client
+            logger.warn("Could not preload book catalog. {}", e.getMessage());
+        }
+    }
+
+    //folds the changes stored since the last compaction into the storage's base files. No commit is written in the
+    //meantime, so the contents hold exactly the changes the storage has stored
+    public void compactStorage() throws ServiceException {
+        getBooks();
+        getReservations();
+        commitQueue.runAlone(() -> {
+            catalogStorage.compact(this);
+            return null;
+        });
+    }
+
+    //returns null if there is no book with this guid
+    public Book findBook(long guid) throws ServiceException {
+        ensureBooksLoaded();
+
+        lock.readLock().lock();
+        try {
+            int ordinal = guidIndex.get(guid);
+            return ordinal == LongIntHashMap.MISSING ? null : bookSlots[ordinal];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean containsBook(long guid) throws ServiceException {
+        ensureBooksLoaded();
+
+        lock.readLock().lock();
+        try {
+            return guidIndex.containsKey(guid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Book> getBooks() throws ServiceException {
+        ensureBooksLoaded();
+
+        lock.readLock().lock();
+        try {
+            return listBooks();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //returns the matching books in the order they were added
+    public List<Book> findBooks(BookFilter filter) throws ServiceException {
+        ensureBooksLoaded();
+        if (filter.getAvailability() != Availability.ANY) {
+            ensureReservationsLoaded();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<FieldCondition> conditions = findConditions(filter);
+            if (conditions.isEmpty()) {
+                return findBooksByAvailability(filter.getAvailability());
+            }
+
+            //walk the most selective field and probe the rest, so the cost follows the smallest posting list.
+            //When even that list is long and all fields are columns, comparing codes slot by slot is cheaper
+            SortedIntList smallestPostings = conditions.get(0).postings;
+            if (isColumnScanCheaper(conditions)) {
+                return findBooksByColumnScan(conditions, filter.getAvailability());
+            }
+
+            List<Book> books = new ArrayList<>(smallestPostings.size());
+            for (int i = 0; i < smallestPostings.size(); i++) {
+                int ordinal = smallestPostings.get(i);
+                if (matchesAll(conditions, ordinal) && hasAvailability(ordinal, filter.getAvailability())) {
+                    books.add(bookSlots[ordinal]);
+                }
+            }
+
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //returns up to limit matching books ordered by guid, starting after the given guid or from the first book
+    //if it is null
+    public List<Book> findBooksPage(BookFilter filter, Long afterGuid, int limit) throws ServiceException {
+        ensureBooksLoaded();
+        if (filter.getAvailability() != Availability.ANY) {
+            ensureReservationsLoaded();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<FieldCondition> conditions = findConditions(filter);
+            if (!conditions.isEmpty()) {
+                //walking the guid order skips over the books that don't match, so once a field is selective
+                //enough it is cheaper to sort the guids of its postings instead
+                int postingsSize = conditions.get(0).postings.size();
+                long expectedWalkLength = (long) limit * guidIndex.size() / Math.max(1, postingsSize);
+                if (postingsSize < expectedWalkLength) {
+                    return findBooksPageByPostings(conditions, filter.getAvailability(), afterGuid, limit);
+                }
+            }
+
+            return findBooksPageByGuidOrder(conditions, filter.getAvailability(), afterGuid, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //returns up to limit books containing the words of the query in their name or author, the books that contain
+    //the most of them first
+    public List<Book> searchBooks(String query, int limit) throws ServiceException {
+        ensureBooksLoaded();
+
+        Set<String> tokens = TokenIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] ordinals = textIndex.findTopMatches(tokens, limit);
+
+            List<Book> books = new ArrayList<>(ordinals.length);
+            for (int ordinal : ordinals) {
+                books.add(bookSlots[ordinal]);
+            }
+
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //returns up to limit distinct values of the field that start with the prefix, ignoring case
+    public List<BookSuggestion> suggestValues(BookField field, String prefix, int limit) throws ServiceException {
+        PrefixIndex prefixIndex = prefixIndexes.get(field);
+        if (prefixIndex == null) {
+            throw new IllegalArgumentException("No suggestions are kept for " + field);
+        }
+
+        ensureBooksLoaded();
+
+        lock.readLock().lock();
+        try {
+            return prefixIndex.findCompletions(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //returns null if the book isn't reserved
+    public BookReservation findReservation(long bookGuid) throws ServiceException {
+        ensureReservationsLoaded();
+
+        lock.readLock().lock();
+        try {
+            return reservationsByBookGuid.get(bookGuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countReservations(String clientName) throws ServiceException {
+        ensureReservationsLoaded();
+
+        lock.readLock().lock();
+        try {
+            return reservationCountsByClient.getOrDefault(clientName, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //takes the reservations that ended before the given day off the expiry queue and returns the ones still in
+    //the catalog. They are not removed, that is left to a commit made under the locks of their books and clients.
+    //Only the due part of the queue is visited
+    public List<BookReservation> pollExpiredReservations(LocalDate today) throws ServiceException {
+        ensureReservationsLoaded();
+
+        lock.writeLock().lock();
+        try {
+            List<BookReservation> expiredReservations = new ArrayList<>();
+            while (!expiryQueue.isEmpty() && expiryQueue.peek().getTakenUntilDate().isBefore(today)) {
+                BookReservation reservation = expiryQueue.poll();
+                if (reservationsByBookGuid.get(reservation.getBookGuid()) == reservation) {
+                    expiredReservations.add(reservation);
+                }
+            }
+
+            return expiredReservations;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<BookReservation> getReservations() throws ServiceException {
+        ensureReservationsLoaded();
+
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(reservationsByBookGuid.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addBook(Book newBook) throws ServiceException {
+        commit(Collections.singletonList(CatalogChange.bookCreated(newBook)));
+    }
+
+    public void removeBook(Book book) throws ServiceException {
+        commit(Collections.singletonList(CatalogChange.bookDeleted(book)));
+    }
+
+    public void addReservation(BookReservation newReservation) throws ServiceException {
+        commit(Collections.singletonList(CatalogChange.reservationCreated(newReservation)));
+    }
+
+    public void removeReservation(BookReservation reservation) throws ServiceException {
+        commit(Collections.singletonList(CatalogChange.reservationRemoved(reservation)));
+    }
+
+    //brings the books in line with an externally edited list. Only the books that were added, changed or removed
+    //are reindexed. The reservations of removed books go with them and only that removal is written back, the same
+    //as deleting a book. The list is read while no commit is being written and once the storage has flushed every
+    //commit, so it can't miss one that is applied but not yet in the files. Callers are expected to hold every book
+    //and client lock. Returns how many books changed
+    public int syncBooks(SyncSource<Book> source) throws ServiceException {
+        ensureReservationsLoaded();
+
+        return commitQueue.runAlone(() -> {
+            catalogStorage.flush();
+            return applyBookSync(source.read());
+        });
+    }
+
+    //same as syncBooks, for the reservations. Nothing is written back
+    public int syncReservations(SyncSource<BookReservation> source) throws ServiceException {
+        ensureReservationsLoaded();
+
+        return commitQueue.runAlone(() -> {
+            catalogStorage.flush();
+            return applyReservationSync(source.read());
+        });
+    }
+
+    private int applyBookSync(List<Book> books) throws ServiceException {
+        List<CatalogChange> reservationRemovals = new ArrayList<>();
+        int changedCount = 0;
+
+        lock.writeLock().lock();
+        try {
+            LongIntHashMap listedGuids = new LongIntHashMap(books.size());
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                listedGuids.put(book.getGuid(), i);
+
+                int ordinal = guidIndex.get(book.getGuid());
+                if (ordinal == LongIntHashMap.MISSING || !isSameBook(ordinal, book)) {
+                    insertBook(book);
+                    changedCount++;
+                }
+            }
+
+            //deleting may compact the slots, so the removed guids are collected before any is deleted
+            List<Long> removedGuids = new ArrayList<>();
+            for (int ordinal = liveOrdinals.nextSetBit(0); ordinal >= 0;
+                 ordinal = liveOrdinals.nextSetBit(ordinal + 1)) {
+                if (!listedGuids.containsKey(bookSlots[ordinal].getGuid())) {
+                    removedGuids.add(bookSlots[ordinal].getGuid());
+                }
+            }
+            for (Long removedGuid : removedGuids) {
+                BookReservation reservation = reservationsByBookGuid.get(removedGuid);
+                if (reservation != null) {
+                    reservationRemovals.add(CatalogChange.reservationRemoved(reservation));
+                    deleteReservation(removedGuid);
+                }
+                deleteBook(removedGuid);
+            }
+            changedCount += removedGuids.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!reservationRemovals.isEmpty()) {
+            try {
+                catalogStorage.persist(reservationRemovals, this);
+            } catch (ServiceException | RuntimeException e) {
+                //the books are gone from the file either way, only the reservations are kept as they are stored
+                lock.writeLock().lock();
+                try {
+                    reservationRemovals.forEach(this::revert);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+        }
+
+        return changedCount;
+    }
+
+    private int applyReservationSync(List<BookReservation> reservations) {
+        lock.writeLock().lock();
+        try {
+            int changedCount = 0;
+            Map<Long, BookReservation> listedReservations = new HashMap<>();
+            for (BookReservation reservation : reservations) {
+                listedReservations.put(reservation.getBookGuid(), reservation);
+
+                BookReservation existingReservation = reservationsByBookGuid.get(reservation.getBookGuid());
+                if (existingReservation == null || !isSameReservation(existingReservation, reservation)) {
+                    insertReservation(reservation);
+                    changedCount++;
+                }
+            }
+
+            List<Long> removedBookGuids = new ArrayList<>();
+            for (Long bookGuid : reservationsByBookGuid.keySet()) {
+                if (!listedReservations.containsKey(bookGuid)) {
+                    removedBookGuids.add(bookGuid);
+                }
+            }
+            removedBookGuids.forEach(this::deleteReservation);
+
+            return changedCount + removedBookGuids.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //applies the changes in memory and writes them through to the storage. If the write fails the changes are
+    //undone again, so the catalog never keeps anything the storage refused. Callers are expected to hold the
+    //locks of the books and clients involved, the catalog itself only keeps its structures consistent
+    public void commit(List<CatalogChange> changes) throws ServiceException {
+        //a write may compact the storage, which reads all contents while holding the storage's own lock. Loading
+        //takes the catalog lock and then the storage's, so everything has to be loaded before the write starts
+        ensureReservationsLoaded();
+
+        commitQueue.commit(changes, this::writeGroup);
+    }
+
+    //only one group is written at a time, so the contents a storage writes hold nothing but stored changes and
+    //the group's own. Readers do see the group's changes while they are being written, if the write fails they
+    //disappear again
+    private void writeGroup(List<CatalogChange> changes) throws ServiceException {
+        catalogStorage.ensureWritable();
+
+        lock.writeLock().lock();
+        try {
+            changes.forEach(this::apply);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            catalogStorage.persist(changes, this);
+        } catch (ServiceException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                for (int i = changes.size() - 1; i >= 0; i--) {
+                    revert(changes.get(i));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    //storage files are read once, after that all reads are served from memory.
+    //books are indexed while the storage streams them in, so the file contents are never held in full
+    private void ensureBooksLoaded() throws ServiceException {
+        if (booksLoaded) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!booksLoaded) {
+                try {
+                    //the guid order is sorted once at the end instead of on every insert
+                    catalogStorage.loadBooks(this::placeBook);
+                    rebuildGuidOrder();
+                } catch (ServiceException | RuntimeException e) {
+                    clearBooks();
+                    throw e;
+                }
+                booksLoaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureReservationsLoaded() throws ServiceException {
+        if (reservationsLoaded) {
+            return;
+        }
+
+        //the reservations are matched to book ordinals, so the books have to be there first
+        ensureBooksLoaded();
+
+        lock.writeLock().lock();
+        try {
+            if (!reservationsLoaded) {
+                try {
+                    catalogStorage.loadReservations(this::insertReservation);
+                } catch (ServiceException | RuntimeException e) {
+                    clearReservations();
+                    throw e;
+                }
+                reservationsLoaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //conditions of the filtered fields, the one with the smallest posting list first
+    private List<FieldCondition> findConditions(BookFilter filter) {
+        List<FieldCondition> conditions = new ArrayList<>();
+        for (BookField field : BookField.values()) {
+            if (filter.isFiltered(field)) {
+                String value = filter.valueOf(field);
+                DictionaryColumn column = columns.get(field);
+                conditions.add(new FieldCondition(fieldIndexes.get(field).postings(value),
+                        column,
+                        column == null ? DictionaryColumn.UNKNOWN : column.codeOf(value)));
+            }
+        }
+        conditions.sort(Comparator.comparingInt(condition -> condition.postings.size()));
+
+        return conditions;
+    }
+
+    private boolean isColumnScanCheaper(List<FieldCondition> conditions) {
+        for (FieldCondition condition : conditions) {
+            if (condition.column == null) {
+                return false;
+            }
+        }
+
+        return (long) conditions.get(0).postings.size() * COLUMN_SCAN_SLOT_RATIO > usedSlotCount;
+    }
+
+    //narrows a bit per slot down column by column, starting from the live slots
+    private List<Book> findBooksByColumnScan(List<FieldCondition> conditions, Availability availability) {
+        long[] ordinalWords = Arrays.copyOf(liveOrdinals.toLongArray(), (usedSlotCount + 63) >>> 6);
+        for (FieldCondition condition : conditions) {
+            condition.column.retainMatches(condition.code, ordinalWords, usedSlotCount);
+        }
+
+        BitSet matchingOrdinals = BitSet.valueOf(ordinalWords);
+        retainAvailability(matchingOrdinals, availability);
+
+        return collectBooks(matchingOrdinals);
+    }
+
+    private List<Book> findBooksPageByGuidOrder(List<FieldCondition> conditions,
+                                                Availability availability,
+                                                Long afterGuid,
+                                                int limit) {
+        List<Book> books = new ArrayList<>(Math.min(limit, guidOrder.size()));
+        int start = afterGuid == null ? 0 : guidOrder.indexAfter(afterGuid);
+        for (int i = start; i < guidOrder.size() && books.size() < limit; i++) {
+            int ordinal = guidIndex.get(guidOrder.get(i));
+            if (matchesAll(conditions, ordinal) && hasAvailability(ordinal, availability)) {
+                books.add(bookSlots[ordinal]);
+            }
+        }
+
+        return books;
+    }
+
+    private List<Book> findBooksPageByPostings(List<FieldCondition> conditions,
+                                               Availability availability,
+                                               Long afterGuid,
+                                               int limit) {
+        SortedIntList smallestPostings = conditions.get(0).postings;
+        long[] guids = new long[smallestPostings.size()];
+        int count = 0;
+        for (int i = 0; i < smallestPostings.size(); i++) {
+            int ordinal = smallestPostings.get(i);
+            long guid = bookSlots[ordinal].getGuid();
+            if ((afterGuid == null || guid > afterGuid)
+                    && matchesAll(conditions, ordinal) && hasAvailability(ordinal, availability)) {
+                guids[count++] = guid;
+            }
+        }
+        Arrays.sort(guids, 0, count);
+
+        List<Book> books = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && i < limit; i++) {
+            books.add(bookSlots[guidIndex.get(guids[i])]);
+        }
+
+        return books;
+    }
+
+    private boolean matchesAll(List<FieldCondition> conditions, int ordinal) {
+        for (FieldCondition condition : conditions) {
+            if (!condition.matches(ordinal)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private List<Book> findBooksByAvailability(Availability availability) {
+        BitSet matchingOrdinals = (BitSet) liveOrdinals.clone();
+        retainAvailability(matchingOrdinals, availability);
+
+        return collectBooks(matchingOrdinals);
+    }
+
+    private void retainAvailability(BitSet ordinals, Availability availability) {
+        if (availability == Availability.ONLY_TAKEN) {
+            ordinals.and(takenOrdinals);
+        } else if (availability == Availability.ONLY_AVAILABLE) {
+            ordinals.andNot(takenOrdinals);
+        }
+    }
+
+    private List<Book> collectBooks(BitSet matchingOrdinals) {
+        List<Book> books = new ArrayList<>(matchingOrdinals.cardinality());
+        for (int ordinal = matchingOrdinals.nextSetBit(0); ordinal >= 0;
+             ordinal = matchingOrdinals.nextSetBit(ordinal + 1)) {
+            books.add(bookSlots[ordinal]);
+        }
+
+        return books;
+    }
+
+    private boolean hasAvailability(int ordinal, Availability availability) {
+        switch (availability) {
+            case ONLY_TAKEN:
+                return takenOrdinals.get(ordinal);
+            case ONLY_AVAILABLE:
+                return !takenOrdinals.get(ordinal);
+            default:
+                return true;
+        }
+    }
+
+    private List<Book> listBooks() {
+        List<Book> books = new ArrayList<>(guidIndex.size());
+        for (int ordinal = 0; ordinal < usedSlotCount; ordinal++) {
+            if (bookSlots[ordinal] != null) {
+                books.add(bookSlots[ordinal]);
+            }
+        }
+
+        return books;
+    }
+
+    //the catalog keeps its own copy, so the caller's book is never changed when its values are swapped for the
+    //shared instances
+    private void insertBook(Book book) {
+        placeBook(new Book(book.getName(), book.getAuthor(), book.getCategory(), book.getLanguage(),
+                book.getPublicationDate(), book.getIsbn(), book.getGuid()));
+        guidOrder.add(book.getGuid());
+    }
+
+    //puts the book into its slot and indexes, but leaves the guid order alone
+    private void placeBook(Book book) {
+        int existingOrdinal = guidIndex.get(book.getGuid());
+        if (existingOrdinal != LongIntHashMap.MISSING) {
+            unindexFields(bookSlots[existingOrdinal], existingOrdinal);
+            bookSlots[existingOrdinal] = book;
+            indexFields(book, existingOrdinal);
+            return;
+        }
+
+        if (usedSlotCount == bookSlots.length) {
+            bookSlots = Arrays.copyOf(bookSlots, bookSlots.length * 2);
+        }
+        int ordinal = usedSlotCount++;
+        bookSlots[ordinal] = book;
+        guidIndex.put(book.getGuid(), ordinal);
+        indexFields(book, ordinal);
+        liveOrdinals.set(ordinal);
+        takenOrdinals.set(ordinal, reservationsByBookGuid.containsKey(book.getGuid()));
+    }
+
+    private void deleteBook(long guid) {
+        int ordinal = guidIndex.remove(guid);
+        if (ordinal == LongIntHashMap.MISSING) {
+            return;
+        }
+        guidOrder.remove(guid);
+        unindexFields(bookSlots[ordinal], ordinal);
+        bookSlots[ordinal] = null;
+        liveOrdinals.clear(ordinal);
+        takenOrdinals.clear(ordinal);
+
+        //once most slots are empty, renumber the remaining books so scans don't walk over the gaps
+        if (usedSlotCount >= MIN_COMPACTION_SLOTS && guidIndex.size() < usedSlotCount / 2) {
+            compactSlots();
+        }
+    }
+
+    private void compactSlots() {
+        List<Book> books = listBooks();
+
+        clearBooks();
+        bookSlots = new Book[Math.max(16, books.size() * 2)];
+        books.forEach(this::placeBook);
+        rebuildGuidOrder();
+    }
+
+    private void rebuildGuidOrder() {
+        long[] guids = new long[guidIndex.size()];
+        int count = 0;
+        for (int ordinal = liveOrdinals.nextSetBit(0); ordinal >= 0;
+             ordinal = liveOrdinals.nextSetBit(ordinal + 1)) {
+            guids[count++] = bookSlots[ordinal].getGuid();
+        }
+        guidOrder.reset(guids, count);
+    }
+
+    private void clearBooks() {
+        Arrays.fill(bookSlots, null);
+        usedSlotCount = 0;
+        guidIndex.clear();
+        guidOrder.clear();
+        fieldIndexes.values().forEach(FieldIndex::clear);
+        columns.values().forEach(DictionaryColumn::clear);
+        publicationDates.clear();
+        textIndex.clear();
+        prefixIndexes.values().forEach(PrefixIndex::clear);
+        liveOrdinals.clear();
+        takenOrdinals.clear();
+    }
+
+    private void clearReservations() {
+        reservationsByBookGuid.clear();
+        expiryQueue.clear();
+        reservationCountsByClient.clear();
+        takenOrdinals.clear();
+    }
+
+    private void apply(CatalogChange change) {
+        switch (change.getType()) {
+            case BOOK_CREATED:
+                insertBook(change.getBook());
+                break;
+            case BOOK_DELETED:
+                deleteBook(change.getBook().getGuid());
+                break;
+            case RESERVATION_CREATED:
+                insertReservation(change.getReservation());
+                break;
+            case RESERVATION_REMOVED:
+                deleteReservation(change.getReservation().getBookGuid());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown catalog change " + change.getType());
+        }
+    }
+
+    private void revert(CatalogChange change) {
+        switch (change.getType()) {
+            case BOOK_CREATED:
+                deleteBook(change.getBook().getGuid());
+                break;
+            case BOOK_DELETED:
+                insertBook(change.getBook());
+                break;
+            case RESERVATION_CREATED:
+                deleteReservation(change.getReservation().getBookGuid());
+                break;
+            case RESERVATION_REMOVED:
+                insertReservation(change.getReservation());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown catalog change " + change.getType());
+        }
+    }
+
+    private void insertReservation(BookReservation reservation) {
+        deleteReservation(reservation.getBookGuid());
+
+        reservationsByBookGuid.put(reservation.getBookGuid(), reservation);
+        reservationCountsByClient.merge(reservation.getClientName(), 1, Integer::sum);
+        if (reservation.getTakenUntilDate() != null) {
+            expiryQueue.add(reservation);
+        }
+
+        int ordinal = guidIndex.get(reservation.getBookGuid());
+        if (ordinal != LongIntHashMap.MISSING) {
+            takenOrdinals.set(ordinal);
+        }
+    }
+
+    private void deleteReservation(long bookGuid) {
+        BookReservation removedReservation = reservationsByBookGuid.remove(bookGuid);
+        if (removedReservation == null) {
+            return;
+        }
+        reservationCountsByClient.computeIfPresent(removedReservation.getClientName(),
+                (clientName, count) -> count > 1 ? count - 1 : null);
+        if (expiryQueue.size() > MIN_COMPACTION_SLOTS && expiryQueue.size() > 2 * reservationsByBookGuid.size()) {
+            rebuildExpiryQueue();
+        }
+
+        int ordinal = guidIndex.get(bookGuid);
+        if (ordinal != LongIntHashMap.MISSING) {
+            takenOrdinals.clear(ordinal);
+        }
+    }
+
+    private void rebuildExpiryQueue() {
+        PriorityQueue<BookReservation> currentReservations =
+                new PriorityQueue<>(Math.max(1, reservationsByBookGuid.size()), EXPIRY_ORDER);
+        for (BookReservation reservation : reservationsByBookGuid.values()) {
+            if (reservation.getTakenUntilDate() != null) {
+                currentReservations.add(reservation);
+            }
+        }
+        expiryQueue = currentReservations;
+    }
+
+    private boolean isSameBook(int ordinal, Book book) {
+        Book storedBook = bookSlots[ordinal];
+        return Objects.equals(storedBook.getGuid(), book.getGuid())
+                && Objects.equals(storedBook.getName(), book.getName())
+                && Objects.equals(storedBook.getAuthor(), book.getAuthor())
+                && Objects.equals(storedBook.getCategory(), book.getCategory())
+                && Objects.equals(storedBook.getLanguage(), book.getLanguage())
+                && publicationDates.matches(ordinal, book.getPublicationDate())
+                && Objects.equals(storedBook.getIsbn(), book.getIsbn());
+    }
+
+    private static boolean isSameReservation(BookReservation first, BookReservation second) {
+        return Objects.equals(first.getBookGuid(), second.getBookGuid())
+                && Objects.equals(first.getClientName(), second.getClientName())
+                && Objects.equals(first.getTakenUntilDate(), second.getTakenUntilDate());
+    }
+
+    //columnar values are swapped for the column's shared instance, so equal strings and dates are held once
+    private void indexFields(Book book, int ordinal) {
+        columns.forEach((field, column) -> field.setValue(book, column.set(ordinal, field.valueOf(book))));
+        book.setPublicationDate(publicationDates.set(ordinal, book.getPublicationDate()));
+        fieldIndexes.forEach((field, index) -> index.add(field.valueOf(book), ordinal));
+        textIndex.add(TokenIndex.tokenize(book.getName(), book.getAuthor()), ordinal);
+        prefixIndexes.forEach((field, index) -> index.add(field.valueOf(book), book.getGuid()));
+    }
+
+    private void unindexFields(Book book, int ordinal) {
+        columns.values().forEach(column -> column.release(ordinal));
+        publicationDates.release(ordinal);
+        fieldIndexes.forEach((field, index) -> index.remove(field.valueOf(book), ordinal));
+        textIndex.remove(TokenIndex.tokenize(book.getName(), book.getAuthor()), ordinal);
+        prefixIndexes.forEach((field, index) -> index.remove(field.valueOf(book), book.getGuid()));
+    }
+
+    //reads an externally edited list for a sync
+    public interface SyncSource<T> {
+
+        List<T> read() throws ServiceException;
+    }
+
+    //one filtered field. Columnar fields are checked by comparing codes, the others by probing the postings
+    private static class FieldCondition {
+
+        private final SortedIntList postings;
+
+        private final DictionaryColumn column;
+
+        private final int code;
+
+        private FieldCondition(SortedIntList postings, DictionaryColumn column, int code) {
+            this.postings = postings;
+            this.column = column;
+            this.code = code;
+        }
+
+        private boolean matches(int ordinal) {
+            return column == null ? postings.contains(ordinal) : column.matches(ordinal, code);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.entity.Book;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public enum BookField {
+
+    NAME(Book::getName, Book::setName, false),
+    AUTHOR(Book::getAuthor, Book::setAuthor, true),
+    CATEGORY(Book::getCategory, Book::setCategory, true),
+    LANGUAGE(Book::getLanguage, Book::setLanguage, true),
+    ISBN(Book::getIsbn, Book::setIsbn, false);
+
+    private final Function<Book, String> valueGetter;
+
+    private final BiConsumer<Book, String> valueSetter;
+
+    //fields with few distinct values shared by many books, the catalog keeps them dictionary encoded
+    private final boolean columnar;
+
+    BookField(Function<Book, String> valueGetter, BiConsumer<Book, String> valueSetter, boolean columnar) {
+        this.valueGetter = valueGetter;
+        this.valueSetter = valueSetter;
+        this.columnar = columnar;
+    }
+
+    public String valueOf(Book book) {
+        return valueGetter.apply(book);
+    }
+
+    public void setValue(Book book, String value) {
+        valueSetter.accept(book, value);
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+}
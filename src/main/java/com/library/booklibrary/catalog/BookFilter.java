@@ -0,0 +1,58 @@
+package com.library.booklibrary.catalog;
+
+import org.apache.commons.lang3.StringUtils;
+
+//a blank value disables filtering by that field
+public class BookFilter {
+
+    private final String name;
+
+    private final String author;
+
+    private final String category;
+
+    private final String language;
+
+    private final String isbn;
+
+    private final Availability availability;
+
+    public BookFilter(String name,
+                      String author,
+                      String category,
+                      String language,
+                      String isbn,
+                      Availability availability) {
+        this.name = name;
+        this.author = author;
+        this.category = category;
+        this.language = language;
+        this.isbn = isbn;
+        this.availability = availability;
+    }
+
+    public String valueOf(BookField field) {
+        switch (field) {
+            case NAME:
+                return name;
+            case AUTHOR:
+                return author;
+            case CATEGORY:
+                return category;
+            case LANGUAGE:
+                return language;
+            case ISBN:
+                return isbn;
+            default:
+                throw new IllegalArgumentException("Unknown book field " + field);
+        }
+    }
+
+    public boolean isFiltered(BookField field) {
+        return StringUtils.isNotBlank(valueOf(field));
+    }
+
+    public Availability getAvailability() {
+        return availability;
+    }
+}
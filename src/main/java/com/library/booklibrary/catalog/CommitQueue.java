@@ -0,0 +1,157 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.storage.CatalogChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//lets only one group of commits be written at a time. Committers queue up and the first one becomes the leader,
+//waits up to the window for others to join, hands the changes of the whole group to the writer and wakes everyone
+//in the group with its result. Commits arriving while a group is being written form the next group. A leader that
+//finds no other commit queued writes right away, so a lone commit never pays for the window. With a group size of 1
+//every commit is written on its own
+public class CommitQueue {
+
+    private final long windowNanos;
+
+    private final int maxGroupSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition groupChanged = lock.newCondition();
+
+    private final Queue<PendingCommit> pendingCommits = new ArrayDeque<>();
+
+    private boolean leaderActive;
+
+    public CommitQueue(long windowMillis, int maxGroupSize) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+    }
+
+    //returns once the group holding these changes is written, or throws the writer's failure
+    public void commit(List<CatalogChange> changes, GroupWriter writer) throws ServiceException {
+        PendingCommit commit = new PendingCommit(changes);
+
+        lock.lock();
+        try {
+            pendingCommits.add(commit);
+            groupChanged.signalAll();
+
+            while (!commit.done) {
+                if (!leaderActive) {
+                    leaderActive = true;
+                    try {
+                        writeGroup(writer);
+                    } finally {
+                        leaderActive = false;
+                        groupChanged.signalAll();
+                    }
+                } else {
+                    groupChanged.awaitUninterruptibly();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (commit.failure != null) {
+            throw commit.failure;
+        }
+    }
+
+    //runs the action while no group is being written. Commits arriving meanwhile wait and are written after it
+    public <T> T runAlone(ExclusiveAction<T> action) throws ServiceException {
+        lock.lock();
+        try {
+            while (leaderActive) {
+                groupChanged.awaitUninterruptibly();
+            }
+            leaderActive = true;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return action.run();
+        } finally {
+            lock.lock();
+            try {
+                leaderActive = false;
+                groupChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //called with the lock held, releases it while the group is written
+    private void writeGroup(GroupWriter writer) {
+        //others only join while commits arrive faster than they are written, that is while some are already queued
+        long remainingNanos = pendingCommits.size() > 1 ? windowNanos : 0;
+        long deadline = System.nanoTime() + remainingNanos;
+        try {
+            while (pendingCommits.size() < maxGroupSize && remainingNanos > 0) {
+                groupChanged.awaitNanos(remainingNanos);
+                remainingNanos = deadline - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            //the group is written right away instead
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingCommit> group = new ArrayList<>();
+        List<CatalogChange> groupChanges = new ArrayList<>();
+        while (!pendingCommits.isEmpty() && group.size() < maxGroupSize) {
+            PendingCommit commit = pendingCommits.poll();
+            group.add(commit);
+            groupChanges.addAll(commit.changes);
+        }
+
+        ServiceException failure = null;
+        lock.unlock();
+        try {
+            writer.write(groupChanges);
+        } catch (ServiceException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new ServiceException("Exception occurred while persisting catalog changes.\n" + e);
+        } finally {
+            lock.lock();
+        }
+
+        for (PendingCommit commit : group) {
+            commit.failure = failure;
+            commit.done = true;
+        }
+    }
+
+    public interface GroupWriter {
+
+        void write(List<CatalogChange> changes) throws ServiceException;
+    }
+
+    public interface ExclusiveAction<T> {
+
+        T run() throws ServiceException;
+    }
+
+    private static class PendingCommit {
+
+        private final List<CatalogChange> changes;
+
+        private boolean done;
+
+        private ServiceException failure;
+
+        private PendingCommit(List<CatalogChange> changes) {
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.library.booklibrary.catalog;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//one date field stored as an int epoch day per ordinal. Books with the same date share one LocalDate instance,
+//which is dropped once the last book with that date is released
+public class DateColumn {
+
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    private final Map<Integer, SharedDate> datesByEpochDay = new HashMap<>();
+
+    private int[] epochDays = new int[16];
+
+    //stores the date for the ordinal and returns the shared instance of it. An ordinal that already has a date has
+    //to be released first
+    public LocalDate set(int ordinal, LocalDate date) {
+        int epochDay = epochDayOf(date);
+        if (ordinal >= epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, Math.max(epochDays.length * 2, ordinal + 1));
+        }
+        epochDays[ordinal] = epochDay;
+        if (date == null) {
+            return null;
+        }
+
+        SharedDate sharedDate = datesByEpochDay.computeIfAbsent(epochDay, day -> new SharedDate(date));
+        sharedDate.bookCount++;
+
+        return sharedDate.date;
+    }
+
+    public void release(int ordinal) {
+        int epochDay = epochDays[ordinal];
+        epochDays[ordinal] = MISSING;
+        if (epochDay == MISSING) {
+            return;
+        }
+
+        SharedDate sharedDate = datesByEpochDay.get(epochDay);
+        if (--sharedDate.bookCount == 0) {
+            datesByEpochDay.remove(epochDay);
+        }
+    }
+
+    public boolean matches(int ordinal, LocalDate date) {
+        return epochDays[ordinal] == epochDayOf(date);
+    }
+
+    public void clear() {
+        datesByEpochDay.clear();
+        epochDays = new int[16];
+    }
+
+    private static int epochDayOf(LocalDate date) {
+        return date == null ? MISSING : Math.toIntExact(date.toEpochDay());
+    }
+
+    private static class SharedDate {
+
+        private final LocalDate date;
+
+        private int bookCount;
+
+        private SharedDate(LocalDate date) {
+            this.date = date;
+        }
+    }
+}
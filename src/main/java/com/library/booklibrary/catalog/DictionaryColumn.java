@@ -0,0 +1,114 @@
+package com.library.booklibrary.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//one book field stored as an int code per ordinal. Every distinct value is kept once in the dictionary and the
+//books share that instance. Each code counts the books that have it, once the last one is released the value is
+//dropped and its code is handed to the next new value
+public class DictionaryColumn {
+
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    private int[] bookCounts = new int[16];
+
+    private int[] freeCodes = new int[16];
+
+    private int freeCodeCount;
+
+    private int[] codes = new int[16];
+
+    //stores the value for the ordinal and returns the shared instance of it. An ordinal that already has a value
+    //has to be released first
+    public String set(int ordinal, String value) {
+        Integer code = codesByValue.get(value);
+        if (code == null) {
+            code = newCode(value);
+        }
+        bookCounts[code]++;
+
+        if (ordinal >= codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(codes.length * 2, ordinal + 1));
+        }
+        codes[ordinal] = code;
+
+        return values.get(code);
+    }
+
+    //the ordinal no longer has a value, for a removed book or before a changed one is set again
+    public void release(int ordinal) {
+        int code = codes[ordinal];
+        codes[ordinal] = UNKNOWN;
+        if (--bookCounts[code] == 0) {
+            codesByValue.remove(values.get(code));
+            values.set(code, null);
+            if (freeCodeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCodes.length * 2);
+            }
+            freeCodes[freeCodeCount++] = code;
+        }
+    }
+
+    //UNKNOWN if no book has this value
+    public int codeOf(String value) {
+        return codesByValue.getOrDefault(value, UNKNOWN);
+    }
+
+    //how many distinct values the books have
+    public int size() {
+        return codesByValue.size();
+    }
+
+    public void clear() {
+        codesByValue.clear();
+        values.clear();
+        bookCounts = new int[16];
+        freeCodes = new int[16];
+        freeCodeCount = 0;
+        codes = new int[16];
+    }
+
+    public boolean matches(int ordinal, int code) {
+        return codes[ordinal] == code;
+    }
+
+    //clears the bits of all ordinals below slotCount whose value isn't the given code. Each word is built with a
+    //branch free loop over the plain code array, which the JIT can unroll and vectorize
+    public void retainMatches(int code, long[] ordinalWords, int slotCount) {
+        int[] columnCodes = codes;
+        for (int wordIndex = 0; wordIndex < ordinalWords.length; wordIndex++) {
+            int firstOrdinal = wordIndex << 6;
+            int ordinalCount = Math.min(64, slotCount - firstOrdinal);
+
+            long matchingBits = 0;
+            for (int bit = 0; bit < ordinalCount; bit++) {
+                matchingBits |= (columnCodes[firstOrdinal + bit] == code ? 1L : 0L) << bit;
+            }
+            ordinalWords[wordIndex] &= matchingBits;
+        }
+    }
+
+    private int newCode(String value) {
+        int code;
+        if (freeCodeCount > 0) {
+            code = freeCodes[--freeCodeCount];
+            values.set(code, value);
+        } else {
+            code = values.size();
+            values.add(value);
+            if (code == bookCounts.length) {
+                bookCounts = Arrays.copyOf(bookCounts, bookCounts.length * 2);
+            }
+        }
+        codesByValue.put(value, code);
+
+        return code;
+    }
+}
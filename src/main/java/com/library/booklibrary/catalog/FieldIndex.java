@@ -0,0 +1,34 @@
+package com.library.booklibrary.catalog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//inverted index of one book field, maps every value to the ordinals of the books that have it
+public class FieldIndex {
+
+    private static final SortedIntList EMPTY_POSTINGS = new SortedIntList(1);
+
+    private final Map<String, SortedIntList> postingsByValue = new HashMap<>();
+
+    public void add(String value, int ordinal) {
+        postingsByValue.computeIfAbsent(value, v -> new SortedIntList()).add(ordinal);
+    }
+
+    public void remove(String value, int ordinal) {
+        SortedIntList postings = postingsByValue.get(value);
+        if (postings != null) {
+            postings.remove(ordinal);
+            if (postings.isEmpty()) {
+                postingsByValue.remove(value);
+            }
+        }
+    }
+
+    public SortedIntList postings(String value) {
+        return postingsByValue.getOrDefault(value, EMPTY_POSTINGS);
+    }
+
+    public void clear() {
+        postingsByValue.clear();
+    }
+}
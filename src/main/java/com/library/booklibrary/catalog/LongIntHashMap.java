@@ -0,0 +1,191 @@
+package com.library.booklibrary.catalog;
+
+import java.util.Arrays;
+
+//open addressing map from primitive long keys to non-negative int values, so lookups neither box nor allocate.
+//collisions are resolved by linear probing and removals shift the following entries back instead of
+//leaving tombstones behind
+public class LongIntHashMap {
+
+    public static final int MISSING = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    //key 0 marks an empty slot, so the entry for key 0 itself is kept outside the table
+    private long[] keys;
+
+    private int[] values;
+
+    private boolean hasZeroKey;
+
+    private int zeroKeyValue;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeThreshold;
+
+    public LongIntHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroKeyValue : MISSING;
+        }
+
+        int index = indexFor(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        return MISSING;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != MISSING;
+    }
+
+    //returns the previous value or MISSING
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored, got " + value);
+        }
+
+        if (key == 0) {
+            int previousValue = hasZeroKey ? zeroKeyValue : MISSING;
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return previousValue;
+        }
+
+        int index = indexFor(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                int previousValue = values[index];
+                values[index] = value;
+                return previousValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+
+        return MISSING;
+    }
+
+    //returns the removed value or MISSING
+    public int remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return MISSING;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroKeyValue;
+        }
+
+        int index = indexFor(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                int removedValue = values[index];
+                shiftBack(index);
+                size--;
+                return removedValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        return MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    //closes the gap left at the given index by moving back entries that probed past it
+    private void shiftBack(int gapIndex) {
+        int index = gapIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            long key = keys[index];
+            if (key == 0) {
+                break;
+            }
+
+            int homeIndex = indexFor(key);
+            //move the entry only if its home slot isn't cyclically between the gap and its current position
+            boolean canMove = gapIndex <= index
+                    ? homeIndex <= gapIndex || homeIndex > index
+                    : homeIndex <= gapIndex && homeIndex > index;
+            if (canMove) {
+                keys[gapIndex] = key;
+                values[gapIndex] = values[index];
+                gapIndex = index;
+            }
+        }
+
+        keys[gapIndex] = 0;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int index = indexFor(key);
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * 0.6f);
+    }
+
+    private int indexFor(long key) {
+        //fibonacci hashing spreads sequential guids over the whole table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 0.6f < expectedSize) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+}
@@ -0,0 +1,90 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.entity.BookSuggestion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+//sorted index of the whole values of one book field, so every value starting with a prefix is found with one
+//lookup and a walk over exactly the values that are returned. Values differing only in case are one entry, shown
+//in the oldest spelling that some book still has
+public class PrefixIndex {
+
+    //a common value can belong to thousands of books, a suggestion lists the first of them and counts the rest
+    static final int MAX_SUGGESTION_GUIDS = 10;
+
+    private final TreeMap<String, Completion> completionsByKey = new TreeMap<>();
+
+    public void add(String value, long guid) {
+        if (value == null) {
+            return;
+        }
+
+        Completion completion = completionsByKey.computeIfAbsent(toKey(value), key -> new Completion());
+        if (completion.guids.add(guid)) {
+            completion.spellingCounts.merge(value, 1, Integer::sum);
+        }
+    }
+
+    public void remove(String value, long guid) {
+        if (value == null) {
+            return;
+        }
+
+        String key = toKey(value);
+        Completion completion = completionsByKey.get(key);
+        if (completion != null && completion.guids.remove(guid)) {
+            completion.spellingCounts.computeIfPresent(value, (spelling, count) -> count == 1 ? null : count - 1);
+            if (completion.guids.size() == 0) {
+                completionsByKey.remove(key);
+            }
+        }
+    }
+
+    //the first limit values starting with the prefix in alphabetical order, each with the number of its books and
+    //the guids of the first of them
+    public List<BookSuggestion> findCompletions(String prefix, int limit) {
+        String prefixKey = toKey(prefix);
+
+        List<BookSuggestion> suggestions = new ArrayList<>(limit);
+        for (Map.Entry<String, Completion> entry : completionsByKey.tailMap(prefixKey).entrySet()) {
+            if (suggestions.size() == limit || !entry.getKey().startsWith(prefixKey)) {
+                break;
+            }
+
+            Completion completion = entry.getValue();
+            int guidCount = Math.min(completion.guids.size(), MAX_SUGGESTION_GUIDS);
+            List<Long> guids = new ArrayList<>(guidCount);
+            for (int i = 0; i < guidCount; i++) {
+                guids.add(completion.guids.get(i));
+            }
+            suggestions.add(new BookSuggestion(completion.displayedValue(), completion.guids.size(), guids));
+        }
+
+        return suggestions;
+    }
+
+    public void clear() {
+        completionsByKey.clear();
+    }
+
+    private static String toKey(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static class Completion {
+
+        //how many books have each spelling, in the order the spellings first appeared
+        private final LinkedHashMap<String, Integer> spellingCounts = new LinkedHashMap<>(2);
+
+        private final SortedLongList guids = new SortedLongList(1);
+
+        private String displayedValue() {
+            return spellingCounts.keySet().iterator().next();
+        }
+    }
+}
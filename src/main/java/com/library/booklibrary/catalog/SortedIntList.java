@@ -0,0 +1,72 @@
+package com.library.booklibrary.catalog;
+
+import java.util.Arrays;
+
+//ascending list of distinct ints. Book ordinals only ever grow, so adding one is an append in practice
+public class SortedIntList {
+
+    private int[] values;
+
+    private int size;
+
+    public SortedIntList() {
+        this(4);
+    }
+
+    public SortedIntList(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    public boolean add(int value) {
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+            return true;
+        }
+
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+
+        int insertionIndex = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, insertionIndex, values, insertionIndex + 1, size - insertionIndex);
+        values[insertionIndex] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+    }
+}
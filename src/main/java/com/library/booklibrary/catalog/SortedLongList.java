@@ -0,0 +1,81 @@
+package com.library.booklibrary.catalog;
+
+import java.util.Arrays;
+
+//ascending list of distinct longs, used to walk book guids in order starting from any position
+public class SortedLongList {
+
+    private long[] values;
+
+    private int size;
+
+    public SortedLongList() {
+        this(16);
+    }
+
+    public SortedLongList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public boolean add(long value) {
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+            return true;
+        }
+
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+
+        int insertionIndex = -index - 1;
+        ensureCapacity();
+        System.arraycopy(values, insertionIndex, values, insertionIndex + 1, size - insertionIndex);
+        values[insertionIndex] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    //replaces the contents with the given values, which don't have to be sorted
+    public void reset(long[] newValues, int count) {
+        values = Arrays.copyOf(newValues, Math.max(16, count));
+        Arrays.sort(values, 0, count);
+        size = count;
+    }
+
+    //position of the first value greater than the given one, or size if there is none
+    public int indexAfter(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+    }
+}
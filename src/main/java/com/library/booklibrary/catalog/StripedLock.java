@@ -0,0 +1,82 @@
+package com.library.booklibrary.catalog;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+//a fixed set of locks that keys are hashed onto, so unrelated keys rarely wait for each other while the lock
+//count stays bounded no matter how many keys there are
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //locks the stripes of all keys in ascending stripe order, which keeps two callers from deadlocking
+    public Held lock(Object... keys) {
+        int[] stripeIndexes = Arrays.stream(keys)
+                .mapToInt(this::stripeIndex)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        int lockedCount = 0;
+        try {
+            for (int stripeIndex : stripeIndexes) {
+                stripes[stripeIndex].lock();
+                lockedCount++;
+            }
+        } catch (RuntimeException e) {
+            unlock(stripeIndexes, lockedCount);
+            throw e;
+        }
+
+        return new Held(stripeIndexes);
+    }
+
+    //locks every stripe, which keeps out all holders of any key
+    public Held lockAll() {
+        int[] stripeIndexes = new int[stripes.length];
+        for (int i = 0; i < stripeIndexes.length; i++) {
+            stripeIndexes[i] = i;
+        }
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+
+        return new Held(stripeIndexes);
+    }
+
+    private int stripeIndex(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+
+        return hash & (stripes.length - 1);
+    }
+
+    private void unlock(int[] stripeIndexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+
+    public class Held implements AutoCloseable {
+
+        private final int[] stripeIndexes;
+
+        private Held(int[] stripeIndexes) {
+            this.stripeIndexes = stripeIndexes;
+        }
+
+        public void close() {
+            unlock(stripeIndexes, stripeIndexes.length);
+        }
+    }
+}
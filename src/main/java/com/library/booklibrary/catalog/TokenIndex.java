@@ -0,0 +1,115 @@
+package com.library.booklibrary.catalog;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+//inverted index of the words in free text fields, maps every lowercased word to the ordinals of the books that
+//contain it
+public class TokenIndex {
+
+    private static final SortedIntList EMPTY_POSTINGS = new SortedIntList(1);
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Map<String, SortedIntList> postingsByToken = new HashMap<>();
+
+    //distinct lowercased words of the texts, in the order they first appear
+    public static Set<String> tokenize(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String token : WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (!token.isEmpty()) {
+                    tokens.add(token);
+                }
+            }
+        }
+
+        return tokens;
+    }
+
+    public void add(Set<String> tokens, int ordinal) {
+        for (String token : tokens) {
+            postingsByToken.computeIfAbsent(token, t -> new SortedIntList()).add(ordinal);
+        }
+    }
+
+    public void remove(Set<String> tokens, int ordinal) {
+        for (String token : tokens) {
+            SortedIntList postings = postingsByToken.get(token);
+            if (postings != null) {
+                postings.remove(ordinal);
+                if (postings.isEmpty()) {
+                    postingsByToken.remove(token);
+                }
+            }
+        }
+    }
+
+    //ordinals of the books with the most matching tokens, at most limit of them. Books matching the same number
+    //of tokens keep the order they were added in. The posting lists are merged in one pass, so the cost follows
+    //their length and not the catalog size
+    public int[] findTopMatches(Set<String> tokens, int limit) {
+        SortedIntList[] postingLists = tokens.stream()
+                .map(token -> postingsByToken.getOrDefault(token, EMPTY_POSTINGS))
+                .toArray(SortedIntList[]::new);
+        int[] positions = new int[postingLists.length];
+
+        //matches grouped by how many tokens they have, each group already in ordinal order
+        int[][] ordinalsByScore = new int[postingLists.length + 1][];
+        int[] countsByScore = new int[postingLists.length + 1];
+        while (true) {
+            int ordinal = Integer.MAX_VALUE;
+            for (int i = 0; i < postingLists.length; i++) {
+                if (positions[i] < postingLists[i].size()) {
+                    ordinal = Math.min(ordinal, postingLists[i].get(positions[i]));
+                }
+            }
+            if (ordinal == Integer.MAX_VALUE) {
+                break;
+            }
+
+            int score = 0;
+            for (int i = 0; i < postingLists.length; i++) {
+                if (positions[i] < postingLists[i].size() && postingLists[i].get(positions[i]) == ordinal) {
+                    positions[i]++;
+                    score++;
+                }
+            }
+
+            //a group never needs more than limit entries
+            if (countsByScore[score] < limit) {
+                if (ordinalsByScore[score] == null) {
+                    ordinalsByScore[score] = new int[Math.min(limit, 16)];
+                } else if (countsByScore[score] == ordinalsByScore[score].length) {
+                    ordinalsByScore[score] = Arrays.copyOf(ordinalsByScore[score],
+                            Math.min(limit, ordinalsByScore[score].length * 2));
+                }
+                ordinalsByScore[score][countsByScore[score]++] = ordinal;
+            }
+        }
+
+        int[] topOrdinals = new int[limit];
+        int count = 0;
+        for (int score = postingLists.length; score > 0 && count < limit; score--) {
+            int taken = Math.min(countsByScore[score], limit - count);
+            if (taken > 0) {
+                System.arraycopy(ordinalsByScore[score], 0, topOrdinals, count, taken);
+                count += taken;
+            }
+        }
+
+        return Arrays.copyOf(topOrdinals, count);
+    }
+
+    public void clear() {
+        postingsByToken.clear();
+    }
+}
@@ -1,13 +1,24 @@
 package com.library.booklibrary.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
 import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.entity.SuggestionField;
 import com.library.booklibrary.exception.RequestException;
 import com.library.booklibrary.exception.ServiceException;
 import com.library.booklibrary.exception.error.ApplicationError;
 import com.library.booklibrary.service.BookService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,17 +28,28 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping(value = "/v1/books", produces = {MediaType.APPLICATION_JSON_VALUE})
 public class BookController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    //books fetched at a time while a whole listing is streamed
+    private static final int STREAM_PAGE_LIMIT = 1000;
+
     private final BookService bookService;
 
-    public BookController(BookService bookService) {
+    private final ObjectMapper objectMapper;
+
+    public BookController(BookService bookService, ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -40,6 +62,16 @@ public class BookController {
         }
     }
 
+    //every book gets a result of its own, the accepted ones are stored together
+    @PostMapping("/batch")
+    public List<BatchItemResult> saveBooks(@RequestBody List<Book> newBooks) {
+        try {
+            return bookService.createBooks(newBooks);
+        } catch (ServiceException e) {
+            throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
+        }
+    }
+
     @PostMapping("/{bookGuid}/reserve")
     public BookReservation takeBook(@PathVariable(name = "bookGuid") Long bookId,
                                     @RequestBody BookReservation newReservation) {
@@ -51,6 +83,27 @@ public class BookController {
         }
     }
 
+    //ends the book's reservation and returns it
+    @DeleteMapping("/{bookGuid}/reserve")
+    public BookReservation returnBook(@PathVariable(name = "bookGuid") Long bookId) {
+        try {
+            return bookService.returnBook(bookId);
+        } catch (ServiceException e) {
+            throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    //atomic batches are stored only if every reservation is valid, best effort batches store the valid ones
+    @PostMapping("/reserve/batch")
+    public List<BatchItemResult> takeBooks(@RequestParam(defaultValue = "ATOMIC") BatchMode mode,
+                                           @RequestBody List<BookReservation> newReservations) {
+        try {
+            return bookService.takeBooks(newReservations, mode);
+        } catch (ServiceException e) {
+            throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
+        }
+    }
+
     @GetMapping("/{bookGuid}")
     public Book getBookByGuid(@PathVariable(name = "bookGuid") Long bookId) {
         try {
@@ -60,22 +113,85 @@ public class BookController {
         }
     }
 
+    //books are paged only when a limit or cursor is given. The cursor of the next page is returned in a header,
+    //it is missing on the last page
     @GetMapping
-    public List<Book> listAllBooksByFilter(@RequestParam(required = false) String name,
-                                           @RequestParam(required = false) String author,
-                                           @RequestParam(required = false) String category,
-                                           @RequestParam(required = false) String language,
-                                           @RequestParam(required = false) String isbn,
-                                           @RequestParam(required = false) boolean isOnlyTaken,
-                                           @RequestParam(required = false) boolean isOnlyAvailable) {
+    public ResponseEntity<List<Book>> listAllBooksByFilter(@RequestParam(required = false) String name,
+                                                           @RequestParam(required = false) String author,
+                                                           @RequestParam(required = false) String category,
+                                                           @RequestParam(required = false) String language,
+                                                           @RequestParam(required = false) String isbn,
+                                                           @RequestParam(required = false) boolean isOnlyTaken,
+                                                           @RequestParam(required = false) boolean isOnlyAvailable,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit) {
+        BookPage page = findBookPage(name, author, category, language, isbn, isOnlyTaken, isOnlyAvailable,
+                cursor, limit);
+
+        return ResponseEntity.ok()
+                .headers(createPageHeaders(page))
+                .body(page.getBooks());
+    }
+
+    //same listing written as one json document per line, so clients can consume books before the whole
+    //response is serialized. Without a limit or cursor the whole listing is streamed in guid order, fetched a page
+    //at a time while it is written, so the server never holds more than one page of it
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamAllBooksByFilter(@RequestParam(required = false) String name,
+                                                                        @RequestParam(required = false) String author,
+                                                                        @RequestParam(required = false) String category,
+                                                                        @RequestParam(required = false) String language,
+                                                                        @RequestParam(required = false) String isbn,
+                                                                        @RequestParam(required = false) boolean isOnlyTaken,
+                                                                        @RequestParam(required = false) boolean isOnlyAvailable,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(required = false) Integer limit) {
+        //the first lookup runs before the response is committed so its errors still map to regular error responses
+        if (cursor != null || limit != null) {
+            BookPage page = findBookPage(name, author, category, language, isbn, isOnlyTaken, isOnlyAvailable,
+                    cursor, limit);
+
+            return ResponseEntity.ok()
+                    .headers(createPageHeaders(page))
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(outputStream -> writeBooksAsLines(page, null, outputStream));
+        }
+
+        BookPage firstPage = findBookPage(name, author, category, language, isbn, isOnlyTaken, isOnlyAvailable,
+                null, STREAM_PAGE_LIMIT);
+        BookPageFetcher nextPageFetcher = nextCursor -> bookService.listAllBooksByFilter(name,
+                author,
+                category,
+                language,
+                isbn,
+                isOnlyTaken,
+                isOnlyAvailable,
+                nextCursor,
+                STREAM_PAGE_LIMIT);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> writeBooksAsLines(firstPage, nextPageFetcher, outputStream));
+    }
+
+    //books whose name or author contain the words of the query, the best matches first
+    @GetMapping("/search")
+    public List<Book> searchBooks(@RequestParam(required = false) String q,
+                                  @RequestParam(required = false) Integer limit) {
         try {
-            return bookService.listAllBooksByFilter(name,
-                    author,
-                    category,
-                    language,
-                    isbn,
-                    isOnlyTaken,
-                    isOnlyAvailable);
+            return bookService.searchBooks(q, limit);
+        } catch (ServiceException e) {
+            throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    //names or authors starting with what the user has typed so far, for as-you-type suggestions
+    @GetMapping("/suggestions")
+    public List<BookSuggestion> suggestBooks(@RequestParam(required = false) String prefix,
+                                             @RequestParam(defaultValue = "NAME") SuggestionField field,
+                                             @RequestParam(required = false) Integer limit) {
+        try {
+            return bookService.suggestBooks(prefix, field, limit);
         } catch (ServiceException e) {
             throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
         }
@@ -89,4 +205,88 @@ public class BookController {
             throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
         }
     }
+
+    private BookPage findBookPage(String name,
+                                  String author,
+                                  String category,
+                                  String language,
+                                  String isbn,
+                                  boolean isOnlyTaken,
+                                  boolean isOnlyAvailable,
+                                  String cursor,
+                                  Integer limit) {
+        try {
+            if (cursor == null && limit == null) {
+                return new BookPage(bookService.listAllBooksByFilter(name,
+                        author,
+                        category,
+                        language,
+                        isbn,
+                        isOnlyTaken,
+                        isOnlyAvailable), null);
+            }
+
+            return bookService.listAllBooksByFilter(name,
+                    author,
+                    category,
+                    language,
+                    isbn,
+                    isOnlyTaken,
+                    isOnlyAvailable,
+                    cursor,
+                    limit);
+        } catch (ServiceException e) {
+            throw new RequestException(ApplicationError.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private HttpHeaders createPageHeaders(BookPage page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+
+        return headers;
+    }
+
+    //writes the page and, if a fetcher is given, every page after it. A failing fetch can't be reported once the
+    //response is committed, the stream is cut off instead
+    private void writeBooksAsLines(BookPage firstPage,
+                                   BookPageFetcher nextPageFetcher,
+                                   OutputStream outputStream) throws IOException {
+        ObjectWriter bookWriter = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            boolean firstLine = true;
+            BookPage page = firstPage;
+            while (true) {
+                for (Book book : page.getBooks()) {
+                    bookWriter.writeValue(generator, book);
+                    generator.writeRaw('\n');
+                    //push the first line out right away, afterwards the generator flushes whenever its buffer
+                    //fills up
+                    if (firstLine) {
+                        generator.flush();
+                        firstLine = false;
+                    }
+                }
+
+                if (nextPageFetcher == null || page.getNextCursor() == null) {
+                    return;
+                }
+                try {
+                    page = nextPageFetcher.fetch(page.getNextCursor());
+                } catch (ServiceException e) {
+                    throw new IOException("Could not fetch the next page of books. " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private interface BookPageFetcher {
+
+        BookPage fetch(String cursor) throws ServiceException;
+    }
 }
@@ -0,0 +1,63 @@
+package com.library.booklibrary.entity;
+
+import com.library.booklibrary.exception.RequestException;
+import com.library.booklibrary.exception.error.ApplicationError;
+
+//outcome of one item of a batch request, items are reported in the order they were sent
+public class BatchItemResult {
+
+    private final int index;
+
+    private final Long bookGuid;
+
+    private final boolean success;
+
+    //null if the item succeeded
+    private final String errorName;
+
+    private final String errorMessage;
+
+    public BatchItemResult(int index,
+                           Long bookGuid,
+                           boolean success,
+                           String errorName,
+                           String errorMessage) {
+        this.index = index;
+        this.bookGuid = bookGuid;
+        this.success = success;
+        this.errorName = errorName;
+        this.errorMessage = errorMessage;
+    }
+
+    public static BatchItemResult succeeded(int index, Long bookGuid) {
+        return new BatchItemResult(index, bookGuid, true, null, null);
+    }
+
+    public static BatchItemResult failed(int index, Long bookGuid, ApplicationError error) {
+        return new BatchItemResult(index, bookGuid, false, error.getErrorName(), error.getMessage());
+    }
+
+    public static BatchItemResult failed(int index, Long bookGuid, RequestException exception) {
+        return new BatchItemResult(index, bookGuid, false, exception.getErrorName(), exception.getErrorMessage());
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getBookGuid() {
+        return bookGuid;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getErrorName() {
+        return errorName;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,8 @@
+package com.library.booklibrary.entity;
+
+public enum BatchMode {
+    //nothing is stored unless every item is valid
+    ATOMIC,
+    //valid items are stored, invalid ones are reported and skipped
+    BEST_EFFORT
+}
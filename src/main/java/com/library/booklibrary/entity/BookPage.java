@@ -0,0 +1,25 @@
+package com.library.booklibrary.entity;
+
+import java.util.List;
+
+public class BookPage {
+
+    private final List<Book> books;
+
+    //null on the last page
+    private final String nextCursor;
+
+    public BookPage(List<Book> books,
+                    String nextCursor) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,33 @@
+package com.library.booklibrary.entity;
+
+import java.util.List;
+
+public class BookSuggestion {
+
+    private final String value;
+
+    private final int bookCount;
+
+    //the first books that have this value, in guid order
+    private final List<Long> bookGuids;
+
+    public BookSuggestion(String value,
+                          int bookCount,
+                          List<Long> bookGuids) {
+        this.value = value;
+        this.bookCount = bookCount;
+        this.bookGuids = bookGuids;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public List<Long> getBookGuids() {
+        return bookGuids;
+    }
+}
@@ -0,0 +1,6 @@
+package com.library.booklibrary.entity;
+
+public enum SuggestionField {
+    NAME,
+    AUTHOR
+}
@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -25,7 +26,11 @@ public class ApplicationExceptionHandler {
         requestError.setErrorName(e.getErrorName());
         requestError.setText(e.getErrorMessage());
 
-        return new ResponseEntity<>(requestError, new HttpHeaders(),
+        //errors are always json, even for endpoints that otherwise stream ndjson
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return new ResponseEntity<>(requestError, headers,
                 e.getHttpStatus() != null ? e.getHttpStatus() : HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
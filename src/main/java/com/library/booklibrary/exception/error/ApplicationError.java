@@ -8,14 +8,23 @@ public enum ApplicationError {
     SERVICE_UNAVAILABLE("Requested service is unavailable", HttpStatus.SERVICE_UNAVAILABLE),
     BOOK_ALREADY_EXISTS("This book already exists", HttpStatus.BAD_REQUEST),
     BOOK_DOESNT_EXIST("Requested book doesn't exist", HttpStatus.BAD_REQUEST),
+    BOOK_GUID_MISSING("Book guid is missing", HttpStatus.BAD_REQUEST),
+    BOOK_DUPLICATED_IN_BATCH("This book appears more than once in the batch", HttpStatus.BAD_REQUEST),
+    RESERVATION_DOESNT_EXIST("This book isn't reserved", HttpStatus.BAD_REQUEST),
     RESERVATION_INVALID_BOOK_ALREADY_TAKEN("Reservation is invalid. This book is already taken",
             HttpStatus.BAD_REQUEST),
     RESERVATION_INVALID_EXCEEDS_ALLOWED_PERIOD("Reservation is invalid. Reservation period exceeds allowed " +
             "boundaries", HttpStatus.BAD_REQUEST),
     RESERVATION_INVALID_MAX_RESERVATIONS_REACHED("Reservation is invalid. This client has already reached " +
             "the maximum number of reservations.", HttpStatus.BAD_REQUEST),
+    RESERVATION_BATCH_ABORTED("Reservation was not stored because other reservations of the batch are invalid",
+            HttpStatus.BAD_REQUEST),
     CANT_REQUEST_BOTH_TAKEN_AND_AVAILABLE("It is not possible to request both only taken and only available "
-            + "books.", HttpStatus.BAD_REQUEST);
+            + "books.", HttpStatus.BAD_REQUEST),
+    INVALID_PAGE_LIMIT("Page limit must be between 1 and 1000", HttpStatus.BAD_REQUEST),
+    INVALID_PAGE_CURSOR("Page cursor is invalid", HttpStatus.BAD_REQUEST),
+    INVALID_SEARCH_QUERY("Search query must contain at least one word", HttpStatus.BAD_REQUEST),
+    INVALID_SUGGESTION_PREFIX("Suggestion prefix must not be empty", HttpStatus.BAD_REQUEST);
 
     private final String errorName;
     private final String message;
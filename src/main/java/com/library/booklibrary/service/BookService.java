@@ -1,7 +1,13 @@
 package com.library.booklibrary.service;
 
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
 import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.entity.SuggestionField;
 import com.library.booklibrary.exception.RequestException;
 import com.library.booklibrary.exception.ServiceException;
 
@@ -11,8 +17,14 @@ public interface BookService {
 
     Book createBook(Book newBook) throws ServiceException, RequestException;
 
+    List<BatchItemResult> createBooks(List<Book> newBooks) throws ServiceException;
+
     BookReservation takeBook(Long bookId, BookReservation newReservation) throws ServiceException, RequestException;
 
+    BookReservation returnBook(Long bookId) throws ServiceException, RequestException;
+
+    List<BatchItemResult> takeBooks(List<BookReservation> newReservations, BatchMode mode) throws ServiceException;
+
     Book getBookByGuid(Long bookId) throws ServiceException, RequestException;
 
     List<Book> listAllBooksByFilter(String name,
@@ -23,5 +35,27 @@ public interface BookService {
                                     boolean onlyTaken,
                                     boolean onlyAvailable) throws ServiceException, RequestException;
 
+    BookPage listAllBooksByFilter(String name,
+                                  String author,
+                                  String category,
+                                  String language,
+                                  String isbn,
+                                  boolean onlyTaken,
+                                  boolean onlyAvailable,
+                                  String cursor,
+                                  Integer limit) throws ServiceException, RequestException;
+
+    List<Book> searchBooks(String query, Integer limit) throws ServiceException, RequestException;
+
+    List<BookSuggestion> suggestBooks(String prefix,
+                                      SuggestionField field,
+                                      Integer limit) throws ServiceException, RequestException;
+
+    int releaseExpiredReservations() throws ServiceException;
+
+    int syncBooks(BookCatalog.SyncSource<Book> source) throws ServiceException;
+
+    int syncReservations(BookCatalog.SyncSource<BookReservation> source) throws ServiceException;
+
     void deleteBookByGuid(Long bookId) throws ServiceException, RequestException;
 }
@@ -1,86 +1,211 @@
 package com.library.booklibrary.service;
 
+import com.library.booklibrary.catalog.Availability;
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.catalog.BookField;
+import com.library.booklibrary.catalog.BookFilter;
+import com.library.booklibrary.catalog.StripedLock;
+import com.library.booklibrary.catalog.TokenIndex;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
 import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.entity.SuggestionField;
 import com.library.booklibrary.exception.RequestException;
 import com.library.booklibrary.exception.ServiceException;
 import com.library.booklibrary.exception.error.ApplicationError;
-import org.apache.commons.lang3.StringUtils;
+import com.library.booklibrary.storage.CatalogChange;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class BookServiceImpl implements BookService {
 
-    private final JsonFileService jsonFileService;
+    private static final int LOCK_STRIPES = 64;
 
-    private final String fileStoragePath;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
 
-    private final String allBooksFilename;
+    private static final int MAX_PAGE_LIMIT = 1000;
 
-    private final String bookReservationFilename;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    private static final int DEFAULT_SUGGESTION_LIMIT = 10;
+
+    private final BookCatalog bookCatalog;
+
+    //a book's lock is always taken before a client's lock
+    private final StripedLock bookLocks = new StripedLock(LOCK_STRIPES);
+
+    private final StripedLock clientLocks = new StripedLock(LOCK_STRIPES);
 
     private final int reservationPeriodLimit;
 
     private final int reservationCountLimit;
 
-    public BookServiceImpl(JsonFileService jsonFileService,
-                           @Value("${storage.path}") String fileStoragePath,
-                           @Value("${storage.books.filename}") String allBooksFilename,
-                           @Value("${storage.reservations.filename}") String bookReservationFilename,
+    public BookServiceImpl(BookCatalog bookCatalog,
                            @Value("${reservation.period}") int reservationPeriodLimit,
                            @Value("${reservation.count.max}") int reservationCountLimit) {
-        this.jsonFileService = jsonFileService;
-        this.fileStoragePath = fileStoragePath;
-        this.allBooksFilename = allBooksFilename;
-        this.bookReservationFilename = bookReservationFilename;
+        this.bookCatalog = bookCatalog;
         this.reservationPeriodLimit = reservationPeriodLimit;
         this.reservationCountLimit = reservationCountLimit;
     }
 
     public Book createBook(Book newBook) throws ServiceException, RequestException {
-        List<Book> allBooks = getAllBooks();
+        requireGuid(newBook.getGuid());
 
-        Optional<Book> optionalBook = allBooks.stream()
-                .filter(book -> book.getGuid().equals(newBook.getGuid()))
-                .findAny();
-        if (optionalBook.isPresent()) {
-            throw new RequestException(ApplicationError.BOOK_ALREADY_EXISTS);
-        }
+        try (StripedLock.Held bookLock = bookLocks.lock(newBook.getGuid())) {
+            if (bookCatalog.containsBook(newBook.getGuid())) {
+                throw new RequestException(ApplicationError.BOOK_ALREADY_EXISTS);
+            }
 
-        allBooks.add(newBook);
-        jsonFileService.writeToFile(fileStoragePath + "/" + allBooksFilename, allBooks);
+            bookCatalog.addBook(newBook);
+        }
 
         return newBook;
     }
 
+    //books that fail validation are reported and skipped, the rest are stored together in one commit
+    public List<BatchItemResult> createBooks(List<Book> newBooks) throws ServiceException {
+        Object[] guids = newBooks.stream()
+                .map(Book::getGuid)
+                .filter(Objects::nonNull)
+                .toArray();
+
+        List<BatchItemResult> results = new ArrayList<>(newBooks.size());
+        try (StripedLock.Held bookLock = bookLocks.lock(guids)) {
+            Set<Long> batchGuids = new HashSet<>();
+            List<CatalogChange> changes = new ArrayList<>();
+            for (int i = 0; i < newBooks.size(); i++) {
+                Book newBook = newBooks.get(i);
+                Long guid = newBook.getGuid();
+                if (guid == null) {
+                    results.add(BatchItemResult.failed(i, null, ApplicationError.BOOK_GUID_MISSING));
+                } else if (!batchGuids.add(guid)) {
+                    results.add(BatchItemResult.failed(i, guid, ApplicationError.BOOK_DUPLICATED_IN_BATCH));
+                } else if (bookCatalog.containsBook(guid)) {
+                    results.add(BatchItemResult.failed(i, guid, ApplicationError.BOOK_ALREADY_EXISTS));
+                } else {
+                    changes.add(CatalogChange.bookCreated(newBook));
+                    results.add(BatchItemResult.succeeded(i, guid));
+                }
+            }
+
+            if (!changes.isEmpty()) {
+                bookCatalog.commit(changes);
+            }
+        }
+
+        return results;
+    }
+
     public BookReservation takeBook(Long bookId,
                                     BookReservation newReservation) throws ServiceException, RequestException {
-        List<Book> allBooks = getAllBooks();
-        List<BookReservation> allReservations = getAllReservations();
+        requireGuid(newReservation.getBookGuid());
 
-        validateBookReservation(newReservation, allBooks, allReservations);
+        //reservations of other books and clients can be validated and stored at the same time
+        try (StripedLock.Held bookLock = bookLocks.lock(newReservation.getBookGuid());
+             StripedLock.Held clientLock = clientLocks.lock(newReservation.getClientName())) {
+            validateBookReservation(newReservation);
 
-        allReservations.add(newReservation);
-        jsonFileService.writeToFile(fileStoragePath + "/" + bookReservationFilename, allReservations);
+            bookCatalog.addReservation(newReservation);
+        }
 
         return newReservation;
     }
 
+    //ends the reservation of the book and returns it. The client's lock can only be taken once the reservation is
+    //known, the book's lock keeps it from changing in the meantime
+    public BookReservation returnBook(Long bookId) throws ServiceException, RequestException {
+        requireGuid(bookId);
+
+        try (StripedLock.Held bookLock = bookLocks.lock(bookId)) {
+            BookReservation reservation = bookCatalog.findReservation(bookId);
+            if (reservation == null) {
+                throw new RequestException(ApplicationError.RESERVATION_DOESNT_EXIST);
+            }
+
+            try (StripedLock.Held clientLock = clientLocks.lock(reservation.getClientName())) {
+                bookCatalog.removeReservation(reservation);
+            }
+
+            return reservation;
+        }
+    }
+
+    //the whole batch is validated while holding the locks of all its books and clients, so it sees one consistent
+    //state. Reservations accepted earlier in the batch count against later ones
+    public List<BatchItemResult> takeBooks(List<BookReservation> newReservations,
+                                           BatchMode mode) throws ServiceException {
+        Object[] bookGuids = newReservations.stream()
+                .map(BookReservation::getBookGuid)
+                .filter(Objects::nonNull)
+                .toArray();
+        Object[] clientNames = newReservations.stream()
+                .map(BookReservation::getClientName)
+                .toArray();
+
+        List<BatchItemResult> results = new ArrayList<>(newReservations.size());
+        try (StripedLock.Held bookLock = bookLocks.lock(bookGuids);
+             StripedLock.Held clientLock = clientLocks.lock(clientNames)) {
+            Set<Long> batchBookGuids = new HashSet<>();
+            Map<String, Integer> batchCountsByClient = new HashMap<>();
+            List<CatalogChange> changes = new ArrayList<>();
+            for (int i = 0; i < newReservations.size(); i++) {
+                BookReservation newReservation = newReservations.get(i);
+                Long bookGuid = newReservation.getBookGuid();
+                try {
+                    if (bookGuid == null) {
+                        throw new RequestException(ApplicationError.BOOK_GUID_MISSING);
+                    }
+                    validateBookReservation(newReservation,
+                            batchBookGuids.contains(bookGuid),
+                            batchCountsByClient.getOrDefault(newReservation.getClientName(), 0));
+                } catch (RequestException e) {
+                    results.add(BatchItemResult.failed(i, bookGuid, e));
+                    continue;
+                }
+
+                batchBookGuids.add(bookGuid);
+                batchCountsByClient.merge(newReservation.getClientName(), 1, Integer::sum);
+                changes.add(CatalogChange.reservationCreated(newReservation));
+                results.add(BatchItemResult.succeeded(i, bookGuid));
+            }
+
+            if (mode == BatchMode.ATOMIC && changes.size() < newReservations.size()) {
+                return abortBatch(results);
+            }
+
+            if (!changes.isEmpty()) {
+                bookCatalog.commit(changes);
+            }
+        }
+
+        return results;
+    }
+
     public Book getBookByGuid(Long bookId) throws ServiceException, RequestException {
-        List<Book> allBooks = getAllBooks();
+        requireGuid(bookId);
+
+        Book book = bookCatalog.findBook(bookId);
+        if (book == null) {
+            throw new RequestException(ApplicationError.BOOK_DOESNT_EXIST);
+        }
 
-        return allBooks.stream()
-                .filter(book -> book.getGuid().equals(bookId))
-                .findAny()
-                .orElseThrow(() -> new RequestException(ApplicationError.BOOK_DOESNT_EXIST));
+        return book;
     }
 
     public List<Book> listAllBooksByFilter(String name,
@@ -90,73 +215,209 @@ public class BookServiceImpl implements BookService {
                                            String isbn,
                                            boolean onlyTaken,
                                            boolean onlyAvailable) throws ServiceException, RequestException {
-        //can't request both only taken and only available books. Such don't exist
-        if (onlyTaken && onlyAvailable) {
-            throw new RequestException(ApplicationError.CANT_REQUEST_BOTH_TAKEN_AND_AVAILABLE);
+        BookFilter filter = createFilter(name, author, category, language, isbn, onlyTaken, onlyAvailable);
+        return bookCatalog.findBooks(filter);
+    }
+
+    public BookPage listAllBooksByFilter(String name,
+                                         String author,
+                                         String category,
+                                         String language,
+                                         String isbn,
+                                         boolean onlyTaken,
+                                         boolean onlyAvailable,
+                                         String cursor,
+                                         Integer limit) throws ServiceException, RequestException {
+        int pageLimit = limit != null ? limit : DEFAULT_PAGE_LIMIT;
+        if (pageLimit < 1 || pageLimit > MAX_PAGE_LIMIT) {
+            throw new RequestException(ApplicationError.INVALID_PAGE_LIMIT);
+        }
+
+        BookFilter filter = createFilter(name, author, category, language, isbn, onlyTaken, onlyAvailable);
+        Long afterGuid = cursor != null ? decodeCursor(cursor) : null;
+
+        //one book more than asked for tells if there is a next page
+        List<Book> books = bookCatalog.findBooksPage(filter, afterGuid, pageLimit + 1);
+        if (books.size() <= pageLimit) {
+            return new BookPage(books, null);
+        }
+
+        List<Book> pageBooks = new ArrayList<>(books.subList(0, pageLimit));
+        return new BookPage(pageBooks, encodeCursor(pageBooks.get(pageLimit - 1).getGuid()));
+    }
+
+    public List<Book> searchBooks(String query, Integer limit) throws ServiceException, RequestException {
+        if (query == null || TokenIndex.tokenize(query).isEmpty()) {
+            throw new RequestException(ApplicationError.INVALID_SEARCH_QUERY);
+        }
+
+        int searchLimit = limit != null ? limit : DEFAULT_SEARCH_LIMIT;
+        if (searchLimit < 1 || searchLimit > MAX_PAGE_LIMIT) {
+            throw new RequestException(ApplicationError.INVALID_PAGE_LIMIT);
+        }
+
+        return bookCatalog.searchBooks(query, searchLimit);
+    }
+
+    public List<BookSuggestion> suggestBooks(String prefix,
+                                             SuggestionField field,
+                                             Integer limit) throws ServiceException, RequestException {
+        if (prefix == null || prefix.isBlank()) {
+            throw new RequestException(ApplicationError.INVALID_SUGGESTION_PREFIX);
+        }
+
+        int suggestionLimit = limit != null ? limit : DEFAULT_SUGGESTION_LIMIT;
+        if (suggestionLimit < 1 || suggestionLimit > MAX_PAGE_LIMIT) {
+            throw new RequestException(ApplicationError.INVALID_PAGE_LIMIT);
+        }
+
+        BookField bookField = field == SuggestionField.AUTHOR ? BookField.AUTHOR : BookField.NAME;
+        return bookCatalog.suggestValues(bookField, prefix, suggestionLimit);
+    }
+
+    //removes the reservations that ended before today in one commit and returns how many were removed
+    public int releaseExpiredReservations() throws ServiceException {
+        List<BookReservation> expiredReservations = bookCatalog.pollExpiredReservations(LocalDate.now());
+        if (expiredReservations.isEmpty()) {
+            return 0;
         }
 
-        List<Book> allBooks = getAllBooks();
-        List<BookReservation> allReservations = getAllReservations();
+        Object[] bookGuids = expiredReservations.stream().map(BookReservation::getBookGuid).toArray();
+        Object[] clientNames = expiredReservations.stream().map(BookReservation::getClientName).toArray();
+        try (StripedLock.Held bookLock = bookLocks.lock(bookGuids);
+             StripedLock.Held clientLock = clientLocks.lock(clientNames)) {
+            //a book may have been returned and taken again before its locks were acquired
+            List<CatalogChange> changes = new ArrayList<>();
+            for (BookReservation expiredReservation : expiredReservations) {
+                if (bookCatalog.findReservation(expiredReservation.getBookGuid()) == expiredReservation) {
+                    changes.add(CatalogChange.reservationRemoved(expiredReservation));
+                }
+            }
+
+            if (!changes.isEmpty()) {
+                bookCatalog.commit(changes);
+            }
+
+            return changes.size();
+        }
+    }
 
-        //if either taken or available books are requested, make a list of all taken book indexes
-        List<Long> takenBookIds;
-        if (onlyTaken || onlyAvailable) {
-            takenBookIds = allReservations.stream()
-                    .map(BookReservation::getBookGuid)
-                    .collect(Collectors.toList());
-        } else {
-            takenBookIds = new ArrayList<>();
+    //applies an externally edited book list. Every book and client lock is held, so no request validates against
+    //the catalog while the sync changes it underneath
+    public int syncBooks(BookCatalog.SyncSource<Book> source) throws ServiceException {
+        try (StripedLock.Held bookLock = bookLocks.lockAll();
+             StripedLock.Held clientLock = clientLocks.lockAll()) {
+            return bookCatalog.syncBooks(source);
         }
+    }
 
-        //return a list of all books that passed the filter
-        return allBooks.stream()
-                //add a book to the list only if the field matches a filter or the filter is disabled(null/blank)
-                //this filter check is done for every field that can be filtered
-                .filter(b -> filterByOneField(b.getName(), name))
-                .filter(b -> filterByOneField(b.getAuthor(), author))
-                .filter(b -> filterByOneField(b.getCategory(), category))
-                .filter(b -> filterByOneField(b.getLanguage(), language))
-                .filter(b -> filterByOneField(b.getIsbn(), isbn))
-                .filter(b -> !onlyTaken || takenBookIds.contains(b.getGuid()))
-                .filter(b -> !onlyAvailable || !takenBookIds.contains(b.getGuid()))
-                .collect(Collectors.toList());
+    public int syncReservations(BookCatalog.SyncSource<BookReservation> source) throws ServiceException {
+        try (StripedLock.Held bookLock = bookLocks.lockAll();
+             StripedLock.Held clientLock = clientLocks.lockAll()) {
+            return bookCatalog.syncReservations(source);
+        }
     }
 
     public void deleteBookByGuid(Long bookId) throws ServiceException, RequestException {
-        List<Book> allBooks = getAllBooks();
+        requireGuid(bookId);
+
+        try (StripedLock.Held bookLock = bookLocks.lock(bookId)) {
+            Book book = bookCatalog.findBook(bookId);
+            if (book == null) {
+                throw new RequestException(ApplicationError.BOOK_DOESNT_EXIST);
+            }
+
+            //the book's reservation goes with it in the same commit, so no reservation is ever left without its book
+            BookReservation reservation = bookCatalog.findReservation(bookId);
+            if (reservation == null) {
+                bookCatalog.removeBook(book);
+                return;
+            }
+
+            try (StripedLock.Held clientLock = clientLocks.lock(reservation.getClientName())) {
+                bookCatalog.commit(List.of(CatalogChange.reservationRemoved(reservation),
+                        CatalogChange.bookDeleted(book)));
+            }
+        }
+    }
+
+    //the catalog looks books up by primitive guid, a missing one has to be reported before it gets there
+    private void requireGuid(Long guid) throws RequestException {
+        if (guid == null) {
+            throw new RequestException(ApplicationError.BOOK_GUID_MISSING);
+        }
+    }
+
+    private BookFilter createFilter(String name,
+                                    String author,
+                                    String category,
+                                    String language,
+                                    String isbn,
+                                    boolean onlyTaken,
+                                    boolean onlyAvailable) throws RequestException {
+        //can't request both only taken and only available books. Such don't exist
+        if (onlyTaken && onlyAvailable) {
+            throw new RequestException(ApplicationError.CANT_REQUEST_BOTH_TAKEN_AND_AVAILABLE);
+        }
+
+        Availability availability = Availability.ANY;
+        if (onlyTaken) {
+            availability = Availability.ONLY_TAKEN;
+        } else if (onlyAvailable) {
+            availability = Availability.ONLY_AVAILABLE;
+        }
 
-        Book book = allBooks.stream()
-                .filter(b -> b.getGuid().equals(bookId))
-                .findAny()
-                .orElseThrow(() -> new RequestException(ApplicationError.BOOK_DOESNT_EXIST));
+        return new BookFilter(name, author, category, language, isbn, availability);
+    }
 
-        allBooks.remove(book);
-        jsonFileService.writeToFile(fileStoragePath + "/" + allBooksFilename, allBooks);
+    //the cursor is the guid of the last book on the previous page. It is encoded so clients treat it as opaque
+    private String encodeCursor(long guid) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(guid).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 
-    private List<Book> getAllBooks() throws ServiceException {
-        return jsonFileService.readFromFileToList(fileStoragePath + "/" + allBooksFilename, Book.class);
+    private Long decodeCursor(String cursor) throws RequestException {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new RequestException(ApplicationError.INVALID_PAGE_CURSOR);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(ApplicationError.INVALID_PAGE_CURSOR, e);
+        }
     }
 
-    private List<BookReservation> getAllReservations() throws ServiceException {
-        return jsonFileService.readFromFileToList(fileStoragePath + "/" + bookReservationFilename,
-                BookReservation.class);
+    private List<BatchItemResult> abortBatch(List<BatchItemResult> results) {
+        List<BatchItemResult> abortedResults = new ArrayList<>(results.size());
+        for (BatchItemResult result : results) {
+            if (result.isSuccess()) {
+                abortedResults.add(BatchItemResult.failed(result.getIndex(),
+                        result.getBookGuid(),
+                        ApplicationError.RESERVATION_BATCH_ABORTED));
+            } else {
+                abortedResults.add(result);
+            }
+        }
+
+        return abortedResults;
     }
 
+    private void validateBookReservation(BookReservation newReservation) throws ServiceException, RequestException {
+        validateBookReservation(newReservation, false, 0);
+    }
+
+    //takenInBatch and clientBatchCount describe reservations that are about to be stored together with this one
     private void validateBookReservation(BookReservation newReservation,
-                                         List<Book> allBooks,
-                                         List<BookReservation> allReservations) throws RequestException {
+                                         boolean takenInBatch,
+                                         int clientBatchCount) throws ServiceException, RequestException {
         //check if the requested book exists
-        allBooks.stream()
-                .filter(book -> book.getGuid().equals(newReservation.getBookGuid()))
-                .findAny()
-                .orElseThrow(() -> new RequestException(ApplicationError.BOOK_DOESNT_EXIST));
+        if (!bookCatalog.containsBook(newReservation.getBookGuid())) {
+            throw new RequestException(ApplicationError.BOOK_DOESNT_EXIST);
+        }
 
         //check if the book isn't already reserved
-        Optional<BookReservation> optionalReservation = allReservations.stream()
-                .filter(reservation -> reservation.getBookGuid().equals(newReservation.getBookGuid()))
-                .findAny();
-        if (optionalReservation.isPresent()) {
+        if (takenInBatch || bookCatalog.findReservation(newReservation.getBookGuid()) != null) {
             throw new RequestException(ApplicationError.RESERVATION_INVALID_BOOK_ALREADY_TAKEN);
         }
 
@@ -166,15 +427,8 @@ public class BookServiceImpl implements BookService {
         }
 
         //check if this client doesn't already have the maximum number of reservations
-        List<BookReservation> clientReservations = allReservations.stream()
-                .filter(reservation -> reservation.getClientName().equals(newReservation.getClientName()))
-                .collect(Collectors.toList());
-        if (clientReservations.size() >= reservationCountLimit) {
+        if (bookCatalog.countReservations(newReservation.getClientName()) + clientBatchCount >= reservationCountLimit) {
             throw new RequestException(ApplicationError.RESERVATION_INVALID_MAX_RESERVATIONS_REACHED);
         }
     }
-
-    private boolean filterByOneField(String currentValue, String filteredValue) {
-        return currentValue.equals(filteredValue) || StringUtils.isBlank(filteredValue);
-    }
 }
@@ -3,10 +3,19 @@ package com.library.booklibrary.service;
 import com.library.booklibrary.exception.ServiceException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface JsonFileService {
 
     void writeToFile(String filepath, Object object) throws ServiceException;
 
     <T> List<T> readFromFileToList(String filepath, Class<T> objectType) throws ServiceException;
+
+    <T> void readFromFile(String filepath, Class<T> objectType, Consumer<T> consumer) throws ServiceException;
+
+    void appendLineToFile(String filepath, Object object) throws ServiceException;
+
+    void writeLinesToFile(String filepath, List<?> objects) throws ServiceException;
+
+    <T> List<T> readLinesToList(String filepath, Class<T> objectType) throws ServiceException;
 }
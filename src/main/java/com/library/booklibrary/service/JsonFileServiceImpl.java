@@ -1,35 +1,160 @@
 package com.library.booklibrary.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class JsonFileServiceImpl implements JsonFileService {
 
+    private static final Logger logger = LoggerFactory.getLogger(JsonFileServiceImpl.class);
+
     private final ObjectMapper objectMapper;
 
     public JsonFileServiceImpl(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
 
+    //the file is replaced as a whole, a crash leaves either the old or the new content behind
     public void writeToFile(String filepath, Object object) throws ServiceException {
+        replaceFile(filepath, outputStream -> objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(outputStream, object));
+    }
+
+    public <T> List<T> readFromFileToList(String filepath, Class<T> objectType) throws ServiceException {
         try {
-            objectMapper.writeValue(new File(filepath), object);
+            return objectMapper.readValue(new File(filepath), objectMapper.getTypeFactory().constructCollectionType(List.class, objectType));
         } catch (IOException e) {
-            throw new ServiceException("Exception occurred while writing to " + filepath + " file.\n" + e);
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n" + e);
         }
     }
 
-    public <T> List<T> readFromFileToList(String filepath, Class<T> objectType) throws ServiceException {
+    //parses the json array one element at a time, so only the element being read is held in memory
+    public <T> void readFromFile(String filepath, Class<T> objectType, Consumer<T> consumer) throws ServiceException {
+        ObjectReader objectReader = objectMapper.readerFor(objectType);
+        try (JsonParser parser = objectMapper.getFactory().createParser(new File(filepath))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                        + "Expected the file to contain a json array.");
+            }
+
+            JsonToken token = parser.nextToken();
+            while (token != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                            + "Unexpected end of file.");
+                }
+                consumer.accept(objectReader.readValue(parser));
+                token = parser.nextToken();
+            }
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n" + e);
+        }
+    }
+
+    public void appendLineToFile(String filepath, Object object) throws ServiceException {
+        //the whole line goes out in a single write, so a crash can only leave a torn last line behind
+        try (FileOutputStream outputStream = new FileOutputStream(filepath, true)) {
+            outputStream.write(toLine(object));
+            outputStream.getFD().sync();
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while appending to " + filepath + " file.\n" + e);
+        }
+    }
+
+    public void writeLinesToFile(String filepath, List<?> objects) throws ServiceException {
+        replaceFile(filepath, outputStream -> {
+            for (Object object : objects) {
+                outputStream.write(toLine(object));
+            }
+        });
+    }
+
+    public <T> List<T> readLinesToList(String filepath, Class<T> objectType) throws ServiceException {
+        Path path = Paths.get(filepath);
+        List<T> objects = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return objects;
+        }
+
         try {
-            return objectMapper.readValue(new File(filepath), objectMapper.getTypeFactory().constructCollectionType(List.class, objectType));
+            byte[] content = Files.readAllBytes(path);
+
+            //only newline terminated lines are complete, anything after the last newline is a torn write
+            int lineStart = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] == '\n') {
+                    if (i > lineStart) {
+                        objects.add(objectMapper.readValue(content, lineStart, i - lineStart, objectType));
+                    }
+                    lineStart = i + 1;
+                }
+            }
+
+            if (lineStart < content.length) {
+                logger.warn("Discarding {} bytes of incomplete data at the end of {}", content.length - lineStart,
+                        filepath);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(lineStart);
+                }
+            }
+
+            return objects;
         } catch (IOException e) {
             throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n" + e);
         }
     }
+
+    //writes the content to a temporary file, syncs it and moves it over the file in one step
+    private void replaceFile(String filepath, FileContent content) throws ServiceException {
+        Path path = Paths.get(filepath);
+        Path temporaryPath = Paths.get(filepath + ".tmp");
+        try {
+            try (FileOutputStream outputStream = new FileOutputStream(temporaryPath.toFile())) {
+                BufferedOutputStream bufferedStream = new BufferedOutputStream(outputStream);
+                content.writeTo(bufferedStream);
+                bufferedStream.flush();
+                outputStream.getFD().sync();
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while writing to " + filepath + " file.\n" + e);
+        }
+    }
+
+    private byte[] toLine(Object object) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        objectMapper.writeValue(line, object);
+        line.write('\n');
+
+        return line.toByteArray();
+    }
+
+    private interface FileContent {
+
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
 }
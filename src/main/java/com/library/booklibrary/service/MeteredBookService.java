@@ -0,0 +1,146 @@
+package com.library.booklibrary.service;
+
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.entity.SuggestionField;
+import com.library.booklibrary.exception.RequestException;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.exception.error.ApplicationError;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//times every service call, tagged by operation and by outcome. The outcome is success or the name of the
+//application error the call ended with, the same name the client receives
+@Service
+@Primary
+public class MeteredBookService implements BookService {
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private final BookServiceImpl bookService;
+
+    private final MeterRegistry meterRegistry;
+
+    public MeteredBookService(BookServiceImpl bookService, MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Book createBook(Book newBook) throws ServiceException, RequestException {
+        return measure("createBook", () -> bookService.createBook(newBook));
+    }
+
+    public List<BatchItemResult> createBooks(List<Book> newBooks) throws ServiceException {
+        return measure("createBooks", () -> bookService.createBooks(newBooks));
+    }
+
+    public BookReservation takeBook(Long bookId, BookReservation newReservation) throws ServiceException, RequestException {
+        return measure("takeBook", () -> bookService.takeBook(bookId, newReservation));
+    }
+
+    public BookReservation returnBook(Long bookId) throws ServiceException, RequestException {
+        return measure("returnBook", () -> bookService.returnBook(bookId));
+    }
+
+    public List<BatchItemResult> takeBooks(List<BookReservation> newReservations, BatchMode mode) throws ServiceException {
+        return measure("takeBooks", () -> bookService.takeBooks(newReservations, mode));
+    }
+
+    public Book getBookByGuid(Long bookId) throws ServiceException, RequestException {
+        return measure("getBookByGuid", () -> bookService.getBookByGuid(bookId));
+    }
+
+    public List<Book> listAllBooksByFilter(String name,
+                                           String author,
+                                           String category,
+                                           String language,
+                                           String isbn,
+                                           boolean onlyTaken,
+                                           boolean onlyAvailable) throws ServiceException, RequestException {
+        return measure("listAllBooksByFilter", () -> bookService.listAllBooksByFilter(name, author, category,
+                language, isbn, onlyTaken, onlyAvailable));
+    }
+
+    public BookPage listAllBooksByFilter(String name,
+                                         String author,
+                                         String category,
+                                         String language,
+                                         String isbn,
+                                         boolean onlyTaken,
+                                         boolean onlyAvailable,
+                                         String cursor,
+                                         Integer limit) throws ServiceException, RequestException {
+        return measure("listBookPage", () -> bookService.listAllBooksByFilter(name, author, category, language,
+                isbn, onlyTaken, onlyAvailable, cursor, limit));
+    }
+
+    public List<Book> searchBooks(String query, Integer limit) throws ServiceException, RequestException {
+        return measure("searchBooks", () -> bookService.searchBooks(query, limit));
+    }
+
+    public List<BookSuggestion> suggestBooks(String prefix,
+                                             SuggestionField field,
+                                             Integer limit) throws ServiceException, RequestException {
+        return measure("suggestBooks", () -> bookService.suggestBooks(prefix, field, limit));
+    }
+
+    public int releaseExpiredReservations() throws ServiceException {
+        return measure("releaseExpiredReservations", bookService::releaseExpiredReservations);
+    }
+
+    public int syncBooks(BookCatalog.SyncSource<Book> source) throws ServiceException {
+        return measure("syncBooks", () -> bookService.syncBooks(source));
+    }
+
+    public int syncReservations(BookCatalog.SyncSource<BookReservation> source) throws ServiceException {
+        return measure("syncReservations", () -> bookService.syncReservations(source));
+    }
+
+    public void deleteBookByGuid(Long bookId) throws ServiceException, RequestException {
+        measure("deleteBookByGuid", () -> {
+            bookService.deleteBookByGuid(bookId);
+            return null;
+        });
+    }
+
+    private <T> T measure(String operation, ServiceOperation<T> serviceOperation) throws ServiceException {
+        //anything unexpected ends up as an internal server error
+        String outcome = ApplicationError.SYSTEM_ERR.getErrorName();
+        long startNanos = System.nanoTime();
+        try {
+            T result = serviceOperation.run();
+            outcome = SUCCESS;
+            return result;
+        } catch (RequestException e) {
+            outcome = e.getErrorName();
+            throw e;
+        } catch (ServiceException e) {
+            //the controller answers these with service unavailable
+            outcome = ApplicationError.SERVICE_UNAVAILABLE.getErrorName();
+            throw e;
+        } finally {
+            Timer.builder("book.service.operation")
+                    .description("Time spent in the book service")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private interface ServiceOperation<T> {
+
+        T run() throws ServiceException;
+    }
+}
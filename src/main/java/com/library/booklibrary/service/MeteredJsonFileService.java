@@ -0,0 +1,149 @@
+package com.library.booklibrary.service;
+
+import com.library.booklibrary.exception.ServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//records how long every file operation takes, how many bytes it moves and how large each file is, tagged by file
+//name, so storage time can be told apart from the time spent in the catalog
+@Service
+@Primary
+public class MeteredJsonFileService implements JsonFileService {
+
+    private static final String READ = "read";
+
+    private static final String WRITTEN = "written";
+
+    private final JsonFileServiceImpl jsonFileService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Path> gaugedFiles = new ConcurrentHashMap<>();
+
+    public MeteredJsonFileService(JsonFileServiceImpl jsonFileService, MeterRegistry meterRegistry) {
+        this.jsonFileService = jsonFileService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void writeToFile(String filepath, Object object) throws ServiceException {
+        measure("write", filepath, WRITTEN, () -> {
+            jsonFileService.writeToFile(filepath, object);
+            return null;
+        });
+    }
+
+    public <T> List<T> readFromFileToList(String filepath, Class<T> objectType) throws ServiceException {
+        return measure("read", filepath, READ, () -> jsonFileService.readFromFileToList(filepath, objectType));
+    }
+
+    public <T> void readFromFile(String filepath, Class<T> objectType, Consumer<T> consumer) throws ServiceException {
+        measure("stream-read", filepath, READ, () -> {
+            jsonFileService.readFromFile(filepath, objectType, consumer);
+            return null;
+        });
+    }
+
+    //only the appended line counts as written
+    public void appendLineToFile(String filepath, Object object) throws ServiceException {
+        long sizeBefore = sizeOf(Paths.get(filepath));
+        measure("append", filepath, null, () -> {
+            jsonFileService.appendLineToFile(filepath, object);
+            return null;
+        });
+        countBytes(filepath, WRITTEN, sizeOf(Paths.get(filepath)) - sizeBefore);
+    }
+
+    public void writeLinesToFile(String filepath, List<?> objects) throws ServiceException {
+        measure("write-lines", filepath, WRITTEN, () -> {
+            jsonFileService.writeLinesToFile(filepath, objects);
+            return null;
+        });
+    }
+
+    public <T> List<T> readLinesToList(String filepath, Class<T> objectType) throws ServiceException {
+        return measure("read-lines", filepath, READ, () -> jsonFileService.readLinesToList(filepath, objectType));
+    }
+
+    //direction is null when the caller counts the bytes itself. Whole-file reads and writes move as many bytes as
+    //the file holds afterwards
+    private <T> T measure(String operation,
+                          String filepath,
+                          String direction,
+                          FileOperation<T> fileOperation) throws ServiceException {
+        Path path = Paths.get(filepath);
+        String filename = path.getFileName().toString();
+        gaugeSize(filename, path);
+
+        String outcome = "failure";
+        long startNanos = System.nanoTime();
+        try {
+            T result = fileOperation.run();
+            outcome = "success";
+            if (direction != null) {
+                countBytes(filepath, direction, sizeOf(path));
+            }
+            return result;
+        } finally {
+            Timer.builder("storage.file.operation")
+                    .description("Time spent reading and writing the storage files")
+                    .tag("operation", operation)
+                    .tag("file", filename)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void countBytes(String filepath, String direction, long byteCount) {
+        if (byteCount <= 0) {
+            return;
+        }
+
+        Counter.builder("storage.file.bytes")
+                .description("Bytes read from and written to the storage files")
+                .baseUnit("bytes")
+                .tag("file", Paths.get(filepath).getFileName().toString())
+                .tag("direction", direction)
+                .register(meterRegistry)
+                .increment(byteCount);
+    }
+
+    private void gaugeSize(String filename, Path path) {
+        if (gaugedFiles.putIfAbsent(filename, path) == null) {
+            Gauge.builder("storage.file.size", path, MeteredJsonFileService::sizeOf)
+                    .description("Current size of the storage files")
+                    .baseUnit("bytes")
+                    .tag("file", filename)
+                    .register(meterRegistry);
+        }
+    }
+
+    //0 if the file doesn't exist yet
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private interface FileOperation<T> {
+
+        T run() throws ServiceException;
+    }
+}
@@ -0,0 +1,61 @@
+package com.library.booklibrary.service;
+
+import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//releases the books of ended reservations in the background every interval, starting right after startup
+@Component
+@ConditionalOnProperty(name = "reservation.expiry.enabled", havingValue = "true")
+public class ReservationExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationExpiryScheduler.class);
+
+    private final BookService bookService;
+
+    private final long intervalSeconds;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reservation-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReservationExpiryScheduler(BookService bookService,
+                                      @Value("${reservation.expiry.interval.seconds}") long intervalSeconds) {
+        this.bookService = bookService;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::releaseExpiredReservations, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private void releaseExpiredReservations() {
+        try {
+            int releasedCount = bookService.releaseExpiredReservations();
+            if (releasedCount > 0) {
+                logger.info("Released {} expired reservations", releasedCount);
+            }
+        } catch (ServiceException | RuntimeException e) {
+            //a failed commit puts the reservations back, the next run tries again
+            logger.warn("Could not release expired reservations. {}", e.getMessage());
+        }
+    }
+}
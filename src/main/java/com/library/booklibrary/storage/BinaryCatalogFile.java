@@ -0,0 +1,278 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+//binary layout of the whole catalog. The catalog is always loaded from it in full, so the file is read into one
+//buffer and decoded from there.
+//
+//the file starts with a fixed size header, followed by the book records, the reservation records and the string
+//heap. Records are fixed width and refer to their strings by offset into the heap, equal strings such as categories
+//and languages are stored once. The header also records the sequence of the last journal entry the contents
+//include, 0 if the file wasn't written from a journal. All numbers are big endian
+public class BinaryCatalogFile {
+
+    private static final int MAGIC = 0x424B4354;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    //guid, publication date, name, author, category, language, isbn
+    private static final int BOOK_RECORD_SIZE = 8 + 8 + 5 * 4;
+
+    //book guid, taken until date, client name
+    private static final int RESERVATION_RECORD_SIZE = 8 + 8 + 4;
+
+    private static final int NULL_STRING = -1;
+
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private final String filepath;
+
+    private final ByteBuffer buffer;
+
+    private final long sequence;
+
+    private final int bookCount;
+
+    private final int reservationCount;
+
+    private final int checksum;
+
+    private final int reservationsOffset;
+
+    private final int stringHeapOffset;
+
+    private BinaryCatalogFile(String filepath, ByteBuffer buffer) throws ServiceException {
+        this.filepath = filepath;
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                    + "The file is not a binary catalog.");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                    + "Unsupported binary catalog version " + buffer.getInt(4) + ".");
+        }
+
+        this.sequence = buffer.getLong(8);
+        this.bookCount = buffer.getInt(16);
+        this.reservationCount = buffer.getInt(20);
+        int stringHeapLength = buffer.getInt(24);
+        this.checksum = buffer.getInt(28);
+
+        this.reservationsOffset = HEADER_SIZE + bookCount * BOOK_RECORD_SIZE;
+        this.stringHeapOffset = reservationsOffset + reservationCount * RESERVATION_RECORD_SIZE;
+        if (bookCount < 0 || reservationCount < 0 || stringHeapLength < 0
+                || (long) stringHeapOffset + stringHeapLength != buffer.capacity()) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                    + "The file is truncated or its header is corrupt.");
+        }
+    }
+
+    public static BinaryCatalogFile read(String filepath) throws ServiceException {
+        try {
+            return new BinaryCatalogFile(filepath, ByteBuffer.wrap(Files.readAllBytes(Path.of(filepath))));
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n" + e);
+        }
+    }
+
+    //the new file is written next to the old one and moved over it, so readers never see a partial file
+    public static void write(String filepath,
+                             List<Book> books,
+                             List<BookReservation> reservations,
+                             long sequence) throws ServiceException {
+        ByteBuffer content = encode(books, reservations, sequence);
+
+        Path path = Paths.get(filepath);
+        Path temporaryPath = Paths.get(filepath + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(true);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while writing to " + filepath + " file.\n" + e);
+        }
+    }
+
+    public static ByteBuffer encode(List<Book> books, List<BookReservation> reservations, long sequence) {
+        StringHeap stringHeap = new StringHeap();
+        int bookCount = books.size();
+        int reservationCount = reservations.size();
+
+        int[][] bookStrings = new int[bookCount][];
+        for (int i = 0; i < bookCount; i++) {
+            Book book = books.get(i);
+            bookStrings[i] = new int[]{stringHeap.add(book.getName()),
+                    stringHeap.add(book.getAuthor()),
+                    stringHeap.add(book.getCategory()),
+                    stringHeap.add(book.getLanguage()),
+                    stringHeap.add(book.getIsbn())};
+        }
+        int[] clientNames = new int[reservationCount];
+        for (int i = 0; i < reservationCount; i++) {
+            clientNames[i] = stringHeap.add(reservations.get(i).getClientName());
+        }
+
+        int size = HEADER_SIZE + bookCount * BOOK_RECORD_SIZE
+                + reservationCount * RESERVATION_RECORD_SIZE + stringHeap.length();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(sequence)
+                .putInt(bookCount)
+                .putInt(reservationCount)
+                .putInt(stringHeap.length());
+        buffer.position(HEADER_SIZE);
+
+        for (int i = 0; i < bookCount; i++) {
+            Book book = books.get(i);
+            buffer.putLong(book.getGuid()).putLong(toEpochDay(book.getPublicationDate()));
+            for (int stringOffset : bookStrings[i]) {
+                buffer.putInt(stringOffset);
+            }
+        }
+
+        for (int i = 0; i < reservationCount; i++) {
+            BookReservation reservation = reservations.get(i);
+            buffer.putLong(reservation.getBookGuid())
+                    .putLong(toEpochDay(reservation.getTakenUntilDate()))
+                    .putInt(clientNames[i]);
+        }
+
+        stringHeap.writeTo(buffer);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, size - HEADER_SIZE);
+        buffer.putInt(28, (int) crc.getValue());
+
+        buffer.flip();
+        return buffer;
+    }
+
+    public void verifyChecksum() throws ServiceException {
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        crc.update(body);
+
+        if ((int) crc.getValue() != checksum) {
+            throw new ServiceException("Exception occurred while reading from " + filepath + " file.\n"
+                    + "Checksum mismatch, the file is corrupt.");
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getBookCount() {
+        return bookCount;
+    }
+
+    public int getReservationCount() {
+        return reservationCount;
+    }
+
+    public Book readBook(int index) {
+        int offset = HEADER_SIZE + index * BOOK_RECORD_SIZE;
+        return new Book(readString(buffer.getInt(offset + 16)),
+                readString(buffer.getInt(offset + 20)),
+                readString(buffer.getInt(offset + 24)),
+                readString(buffer.getInt(offset + 28)),
+                toDate(buffer.getLong(offset + 8)),
+                readString(buffer.getInt(offset + 32)),
+                buffer.getLong(offset));
+    }
+
+    public BookReservation readReservation(int index) {
+        int offset = reservationsOffset + index * RESERVATION_RECORD_SIZE;
+        return new BookReservation(buffer.getLong(offset),
+                readString(buffer.getInt(offset + 16)),
+                toDate(buffer.getLong(offset + 8)));
+    }
+
+    private String readString(int heapOffset) {
+        if (heapOffset == NULL_STRING) {
+            return null;
+        }
+
+        int offset = stringHeapOffset + heapOffset;
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.duplicate().position(offset + 4).get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochDay(LocalDate date) {
+        return date == null ? NULL_DATE : date.toEpochDay();
+    }
+
+    private static LocalDate toDate(long epochDay) {
+        return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    //length prefixed utf-8 strings, each distinct value is written once
+    private static class StringHeap {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+
+        private final List<byte[]> values = new ArrayList<>();
+
+        private int length;
+
+        private int add(String value) {
+            if (value == null) {
+                return NULL_STRING;
+            }
+
+            Integer existingOffset = offsets.get(value);
+            if (existingOffset != null) {
+                return existingOffset;
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            int offset = length;
+            offsets.put(value, offset);
+            values.add(bytes);
+            length += 4 + bytes.length;
+
+            return offset;
+        }
+
+        private int length() {
+            return length;
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            for (byte[] value : values) {
+                buffer.putInt(value.length).put(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Consumer;
+
+//keeps the catalog as one binary file which is rewritten in full whenever the catalog changes
+public class BinaryCatalogStorage implements RewritingCatalogStorage {
+
+    private final String catalogFilepath;
+
+    public BinaryCatalogStorage(String fileStoragePath,
+                                String catalogFilename) {
+        this.catalogFilepath = fileStoragePath + "/" + catalogFilename;
+    }
+
+    public void loadBooks(Consumer<Book> consumer) throws ServiceException {
+        BinaryCatalogFile file = readCatalogFile();
+        for (int i = 0; i < file.getBookCount(); i++) {
+            consumer.accept(file.readBook(i));
+        }
+    }
+
+    public void loadReservations(Consumer<BookReservation> consumer) throws ServiceException {
+        BinaryCatalogFile file = readCatalogFile();
+        for (int i = 0; i < file.getReservationCount(); i++) {
+            consumer.accept(file.readReservation(i));
+        }
+    }
+
+    public void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException {
+        writeAll(contents);
+    }
+
+    public void compact(CatalogContents contents) {
+        //every write already leaves the full catalog in the file, there is nothing to compact
+    }
+
+    public synchronized void writeAll(CatalogContents contents) throws ServiceException {
+        BinaryCatalogFile.write(catalogFilepath, contents.getBooks(), contents.getReservations(), 0);
+    }
+
+    public boolean exists() {
+        return Files.exists(Paths.get(catalogFilepath));
+    }
+
+    //the file is only read while the catalog is loaded, so it isn't kept once decoded
+    private BinaryCatalogFile readCatalogFile() throws ServiceException {
+        BinaryCatalogFile file = BinaryCatalogFile.read(catalogFilepath);
+        file.verifyChecksum();
+
+        return file;
+    }
+}
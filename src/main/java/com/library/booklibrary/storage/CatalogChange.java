@@ -0,0 +1,62 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+
+public class CatalogChange {
+
+    public enum Type {
+        BOOK_CREATED,
+        BOOK_DELETED,
+        RESERVATION_CREATED,
+        RESERVATION_REMOVED
+    }
+
+    private final Type type;
+
+    private final Book book;
+
+    private final BookReservation reservation;
+
+    public CatalogChange(Type type, Book book, BookReservation reservation) {
+        this.type = type;
+        this.book = book;
+        this.reservation = reservation;
+    }
+
+    public static CatalogChange bookCreated(Book book) {
+        return new CatalogChange(Type.BOOK_CREATED, book, null);
+    }
+
+    public static CatalogChange bookDeleted(Book book) {
+        return new CatalogChange(Type.BOOK_DELETED, book, null);
+    }
+
+    public static CatalogChange reservationCreated(BookReservation reservation) {
+        return new CatalogChange(Type.RESERVATION_CREATED, null, reservation);
+    }
+
+    public static CatalogChange reservationRemoved(BookReservation reservation) {
+        return new CatalogChange(Type.RESERVATION_REMOVED, null, reservation);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public BookReservation getReservation() {
+        return reservation;
+    }
+
+    public boolean touchesBooks() {
+        return type == Type.BOOK_CREATED || type == Type.BOOK_DELETED;
+    }
+
+    public boolean touchesReservations() {
+        return type == Type.RESERVATION_CREATED || type == Type.RESERVATION_REMOVED;
+    }
+}
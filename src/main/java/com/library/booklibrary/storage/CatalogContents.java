@@ -0,0 +1,14 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+
+import java.util.List;
+
+public interface CatalogContents {
+
+    List<Book> getBooks() throws ServiceException;
+
+    List<BookReservation> getReservations() throws ServiceException;
+}
@@ -0,0 +1,83 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//converts the catalog files between the json and binary formats at startup. It runs while the catalog storage is
+//created, so before the catalog is loaded and before any request is accepted. A target that already exists is
+//left alone unless the conversion is forced, so a conversion left configured doesn't overwrite newer changes with
+//the stale source files on every restart
+@Component
+public class CatalogConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogConverter.class);
+
+    private final JsonCatalogStorage jsonCatalogStorage;
+
+    private final BinaryCatalogStorage binaryCatalogStorage;
+
+    private final String conversion;
+
+    private final boolean forced;
+
+    public CatalogConverter(JsonCatalogStorage jsonCatalogStorage,
+                            BinaryCatalogStorage binaryCatalogStorage,
+                            @Value("${storage.convert}") String conversion,
+                            @Value("${storage.convert.force}") boolean forced) {
+        this.jsonCatalogStorage = jsonCatalogStorage;
+        this.binaryCatalogStorage = binaryCatalogStorage;
+        this.conversion = conversion;
+        this.forced = forced;
+    }
+
+    public void convert() throws ServiceException {
+        switch (conversion) {
+            case "none":
+                return;
+            case "json-to-binary":
+                convert(jsonCatalogStorage, binaryCatalogStorage);
+                break;
+            case "binary-to-json":
+                convert(binaryCatalogStorage, jsonCatalogStorage);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage.convert " + conversion);
+        }
+    }
+
+    private void convert(RewritingCatalogStorage source, RewritingCatalogStorage target) throws ServiceException {
+        if (target.exists() && !forced) {
+            logger.warn("Not converting the catalog with storage.convert={}, its target files already exist. "
+                    + "Remove storage.convert or set storage.convert.force=true to overwrite them", conversion);
+            return;
+        }
+
+        copy(source, target);
+    }
+
+    public static void copy(RewritingCatalogStorage source, RewritingCatalogStorage target) throws ServiceException {
+        List<Book> books = new ArrayList<>();
+        source.loadBooks(books::add);
+        List<BookReservation> reservations = new ArrayList<>();
+        source.loadReservations(reservations::add);
+
+        target.writeAll(new CatalogContents() {
+            public List<Book> getBooks() {
+                return books;
+            }
+
+            public List<BookReservation> getReservations() {
+                return reservations;
+            }
+        });
+        logger.info("Converted {} books and {} reservations", books.size(), reservations.size());
+    }
+}
@@ -0,0 +1,24 @@
+package com.library.booklibrary.storage;
+
+import java.util.List;
+
+//one committed mutation of the catalog, written to the journal as a single line
+public class CatalogJournalEntry {
+
+    private final long sequence;
+
+    private final List<CatalogChange> changes;
+
+    public CatalogJournalEntry(long sequence, List<CatalogChange> changes) {
+        this.sequence = sequence;
+        this.changes = changes;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public List<CatalogChange> getChanges() {
+        return changes;
+    }
+}
@@ -0,0 +1,60 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//takes a catalog snapshot in the background every interval. Each run also drops the superseded snapshots and the
+//journal entries no snapshot needs anymore, so the work left for a restart stays bounded
+@Component
+@ConditionalOnProperty(name = "storage.snapshot.enabled", havingValue = "true")
+public class CatalogSnapshotScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotScheduler.class);
+
+    private final BookCatalog bookCatalog;
+
+    private final long intervalSeconds;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CatalogSnapshotScheduler(BookCatalog bookCatalog,
+                                    @Value("${storage.snapshot.interval.seconds}") long intervalSeconds) {
+        this.bookCatalog = bookCatalog;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(this::takeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private void takeSnapshot() {
+        try {
+            bookCatalog.compactStorage();
+        } catch (ServiceException | RuntimeException e) {
+            //the journal still has every change, the next run tries again
+            logger.warn("Could not take catalog snapshot. {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+//point-in-time copies of the catalog in the binary format. Every snapshot is named after the sequence of the last
+//journal entry it includes, so the journal only has to be replayed from there on
+public class CatalogSnapshots {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshots.class);
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("catalog-(\\d{20})\\.snapshot");
+
+    private final Path directory;
+
+    private final int retainedCount;
+
+    public CatalogSnapshots(String fileStoragePath,
+                            String snapshotDirectory,
+                            int retainedCount) {
+        this.directory = Paths.get(fileStoragePath, snapshotDirectory);
+        this.retainedCount = Math.max(1, retainedCount);
+    }
+
+    //returns null if there is no snapshot that passes its checksum. A broken snapshot is skipped in favour of the
+    //one before it, the journal still holds everything after the older one
+    public BinaryCatalogFile findNewestValid() throws ServiceException {
+        for (Path snapshotPath : listNewestFirst()) {
+            try {
+                BinaryCatalogFile snapshot = BinaryCatalogFile.read(snapshotPath.toString());
+                snapshot.verifyChecksum();
+                return snapshot;
+            } catch (ServiceException e) {
+                logger.warn("Skipping unreadable snapshot {}. {}", snapshotPath, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    //sequence of the newest snapshot, 0 if there is none
+    public long findNewestSequence() throws ServiceException {
+        List<Path> snapshotPaths = listNewestFirst();
+        return snapshotPaths.isEmpty() ? 0 : sequenceOf(snapshotPaths.get(0));
+    }
+
+    public void write(CatalogContents contents, long sequence) throws ServiceException {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while creating " + directory + " directory.\n" + e);
+        }
+
+        String snapshotPath = directory.resolve(String.format("catalog-%020d.snapshot", sequence)).toString();
+        BinaryCatalogFile.write(snapshotPath, contents.getBooks(), contents.getReservations(), sequence);
+    }
+
+    //deletes all but the newest retained snapshots and returns the sequence of the oldest one that is kept.
+    //journal entries up to that sequence are no longer needed by any snapshot
+    public long dropSuperseded() throws ServiceException {
+        List<Path> snapshotPaths = listNewestFirst();
+        if (snapshotPaths.isEmpty()) {
+            return 0;
+        }
+
+        List<Path> retainedPaths = snapshotPaths.subList(0, Math.min(retainedCount, snapshotPaths.size()));
+        for (Path supersededPath : snapshotPaths.subList(retainedPaths.size(), snapshotPaths.size())) {
+            try {
+                Files.deleteIfExists(supersededPath);
+            } catch (IOException e) {
+                throw new ServiceException("Exception occurred while deleting " + supersededPath + " file.\n" + e);
+            }
+        }
+
+        return sequenceOf(retainedPaths.get(retainedPaths.size() - 1));
+    }
+
+    private List<Path> listNewestFirst() throws ServiceException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> SNAPSHOT_NAME.matcher(path.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing(CatalogSnapshots::sequenceOf).reversed())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ServiceException("Exception occurred while listing " + directory + " directory.\n" + e);
+        }
+    }
+
+    private static long sequenceOf(Path snapshotPath) {
+        Matcher matcher = SNAPSHOT_NAME.matcher(snapshotPath.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a snapshot file " + snapshotPath);
+        }
+
+        return Long.parseLong(matcher.group(1));
+    }
+}
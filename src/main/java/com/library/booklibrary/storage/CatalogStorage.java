@@ -0,0 +1,29 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface CatalogStorage {
+
+    void loadBooks(Consumer<Book> consumer) throws ServiceException;
+
+    void loadReservations(Consumer<BookReservation> consumer) throws ServiceException;
+
+    //contents already include the given changes
+    void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException;
+
+    void compact(CatalogContents contents) throws ServiceException;
+
+    //called before changes are applied to the catalog. A storage that can't take them right now throws here, so
+    //they are refused before anything has to be undone
+    default void ensureWritable() throws ServiceException {
+    }
+
+    //returns once every change persisted so far is in the files
+    default void flush() throws ServiceException {
+    }
+}
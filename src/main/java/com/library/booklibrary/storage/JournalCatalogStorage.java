@@ -0,0 +1,196 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.JsonFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+//appends every mutation to a journal file instead of rewriting the catalog files.
+//the catalog files hold the catalog as of the last compaction and the journal holds everything after it.
+//with snapshots enabled the catalog is loaded from the newest binary snapshot instead, and only the journal entries
+//after the snapshot are replayed
+public class JournalCatalogStorage implements CatalogStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalCatalogStorage.class);
+
+    private final JsonFileService jsonFileService;
+
+    private final RewritingCatalogStorage baseStorage;
+
+    private final String journalFilepath;
+
+    private final int compactionThreshold;
+
+    //null if snapshots are disabled
+    private final CatalogSnapshots snapshots;
+
+    private long lastSequence;
+
+    private int journalEntryCount = -1;
+
+    public JournalCatalogStorage(JsonFileService jsonFileService,
+                                 RewritingCatalogStorage baseStorage,
+                                 String fileStoragePath,
+                                 String journalFilename,
+                                 int compactionThreshold) {
+        this(jsonFileService, baseStorage, fileStoragePath, journalFilename, compactionThreshold, null);
+    }
+
+    public JournalCatalogStorage(JsonFileService jsonFileService,
+                                 RewritingCatalogStorage baseStorage,
+                                 String fileStoragePath,
+                                 String journalFilename,
+                                 int compactionThreshold,
+                                 CatalogSnapshots snapshots) {
+        this.jsonFileService = jsonFileService;
+        this.baseStorage = baseStorage;
+        this.journalFilepath = fileStoragePath + "/" + journalFilename;
+        this.compactionThreshold = compactionThreshold;
+        this.snapshots = snapshots;
+    }
+
+    public void loadBooks(Consumer<Book> consumer) throws ServiceException {
+        Map<Long, Book> books = new LinkedHashMap<>();
+        BinaryCatalogFile snapshot = findSnapshot();
+        if (snapshot != null) {
+            for (int i = 0; i < snapshot.getBookCount(); i++) {
+                Book book = snapshot.readBook(i);
+                books.put(book.getGuid(), book);
+            }
+        } else {
+            baseStorage.loadBooks(book -> books.put(book.getGuid(), book));
+        }
+
+        //replaying is idempotent, so entries that were already compacted into the catalog files do no harm
+        for (CatalogJournalEntry entry : readJournalAfter(snapshot)) {
+            for (CatalogChange change : entry.getChanges()) {
+                if (change.getType() == CatalogChange.Type.BOOK_CREATED) {
+                    books.put(change.getBook().getGuid(), change.getBook());
+                } else if (change.getType() == CatalogChange.Type.BOOK_DELETED) {
+                    books.remove(change.getBook().getGuid());
+                }
+            }
+        }
+
+        books.values().forEach(consumer);
+    }
+
+    public void loadReservations(Consumer<BookReservation> consumer) throws ServiceException {
+        Map<Long, BookReservation> reservations = new LinkedHashMap<>();
+        BinaryCatalogFile snapshot = findSnapshot();
+        if (snapshot != null) {
+            for (int i = 0; i < snapshot.getReservationCount(); i++) {
+                BookReservation reservation = snapshot.readReservation(i);
+                reservations.put(reservation.getBookGuid(), reservation);
+            }
+        } else {
+            baseStorage.loadReservations(reservation -> reservations.put(reservation.getBookGuid(), reservation));
+        }
+
+        for (CatalogJournalEntry entry : readJournalAfter(snapshot)) {
+            for (CatalogChange change : entry.getChanges()) {
+                if (change.getType() == CatalogChange.Type.RESERVATION_CREATED) {
+                    reservations.put(change.getReservation().getBookGuid(), change.getReservation());
+                } else if (change.getType() == CatalogChange.Type.RESERVATION_REMOVED) {
+                    reservations.remove(change.getReservation().getBookGuid());
+                }
+            }
+        }
+
+        reservations.values().forEach(consumer);
+    }
+
+    public synchronized void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException {
+        if (journalEntryCount < 0) {
+            readJournal();
+        }
+
+        jsonFileService.appendLineToFile(journalFilepath, new CatalogJournalEntry(lastSequence + 1, changes));
+        lastSequence++;
+        journalEntryCount++;
+
+        //with snapshots compaction is left to the background snapshot task, off the write path
+        if (snapshots == null && journalEntryCount >= compactionThreshold) {
+            try {
+                compact(contents);
+            } catch (ServiceException e) {
+                //the change itself is already durable in the journal, compaction is retried with the next write
+                logger.warn("Journal compaction failed. {}", e.getMessage());
+            }
+        }
+    }
+
+    //rebuilds the catalog files from the current contents and starts a new, empty journal. With snapshots a new
+    //snapshot is written first and the journal keeps the entries the oldest retained snapshot still needs
+    public synchronized void compact(CatalogContents contents) throws ServiceException {
+        if (journalEntryCount < 0) {
+            readJournal();
+        }
+        if (journalEntryCount == 0) {
+            return;
+        }
+
+        if (snapshots == null) {
+            baseStorage.writeAll(contents);
+            jsonFileService.writeLinesToFile(journalFilepath, Collections.emptyList());
+            journalEntryCount = 0;
+            return;
+        }
+
+        //the journal still holds entries for older snapshots, but nothing changed since the newest one
+        if (snapshots.findNewestSequence() == lastSequence) {
+            return;
+        }
+
+        //the catalog compacts only while no commit is being applied or written, so the contents hold exactly the
+        //journal up to lastSequence. A commit that is still being written can't end up in the snapshot
+        snapshots.write(contents, lastSequence);
+        baseStorage.writeAll(contents);
+        long oldestRetainedSequence = snapshots.dropSuperseded();
+
+        List<CatalogJournalEntry> neededEntries = readJournal().stream()
+                .filter(entry -> entry.getSequence() > oldestRetainedSequence)
+                .collect(Collectors.toList());
+        jsonFileService.writeLinesToFile(journalFilepath, neededEntries);
+        journalEntryCount = neededEntries.size();
+    }
+
+    private BinaryCatalogFile findSnapshot() throws ServiceException {
+        return snapshots != null ? snapshots.findNewestValid() : null;
+    }
+
+    private List<CatalogJournalEntry> readJournalAfter(BinaryCatalogFile snapshot) throws ServiceException {
+        List<CatalogJournalEntry> entries = readJournal();
+        if (snapshot == null) {
+            return entries;
+        }
+
+        return entries.stream()
+                .filter(entry -> entry.getSequence() > snapshot.getSequence())
+                .collect(Collectors.toList());
+    }
+
+    private synchronized List<CatalogJournalEntry> readJournal() throws ServiceException {
+        List<CatalogJournalEntry> entries = jsonFileService.readLinesToList(journalFilepath, CatalogJournalEntry.class);
+
+        journalEntryCount = entries.size();
+        if (!entries.isEmpty()) {
+            lastSequence = Math.max(lastSequence, entries.get(entries.size() - 1).getSequence());
+        }
+        //the journal may have been trimmed up to the newest snapshot, new entries must still sort after it
+        if (snapshots != null) {
+            lastSequence = Math.max(lastSequence, snapshots.findNewestSequence());
+        }
+
+        return entries;
+    }
+}
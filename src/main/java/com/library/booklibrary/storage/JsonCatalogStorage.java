@@ -0,0 +1,104 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.JsonFileService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+//keeps the catalog as two json files which are rewritten in full whenever their contents change
+public class JsonCatalogStorage implements RewritingCatalogStorage {
+
+    private final JsonFileService jsonFileService;
+
+    private final String allBooksFilepath;
+
+    private final String bookReservationFilepath;
+
+    //modification time and size of each file right after this storage last wrote it
+    private final Map<Path, String> writtenFileStamps = new ConcurrentHashMap<>();
+
+    public JsonCatalogStorage(JsonFileService jsonFileService,
+                              String fileStoragePath,
+                              String allBooksFilename,
+                              String bookReservationFilename) {
+        this.jsonFileService = jsonFileService;
+        this.allBooksFilepath = fileStoragePath + "/" + allBooksFilename;
+        this.bookReservationFilepath = fileStoragePath + "/" + bookReservationFilename;
+    }
+
+    public void loadBooks(Consumer<Book> consumer) throws ServiceException {
+        jsonFileService.readFromFile(allBooksFilepath, Book.class, consumer);
+    }
+
+    public void loadReservations(Consumer<BookReservation> consumer) throws ServiceException {
+        jsonFileService.readFromFile(bookReservationFilepath, BookReservation.class, consumer);
+    }
+
+    //each file is replaced as a whole, but the two can't be replaced together. When books are deleted the
+    //reservations are written first, so if the second write never happens the files hold at worst a book without
+    //its reservation, never a reservation without its book
+    public synchronized void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException {
+        boolean touchesBooks = changes.stream().anyMatch(CatalogChange::touchesBooks);
+        boolean touchesReservations = changes.stream().anyMatch(CatalogChange::touchesReservations);
+        boolean deletesBooks = changes.stream()
+                .anyMatch(change -> change.getType() == CatalogChange.Type.BOOK_DELETED);
+
+        if (touchesReservations && deletesBooks) {
+            writeFile(bookReservationFilepath, contents.getReservations());
+            touchesReservations = false;
+        }
+        if (touchesBooks) {
+            writeFile(allBooksFilepath, contents.getBooks());
+        }
+        if (touchesReservations) {
+            writeFile(bookReservationFilepath, contents.getReservations());
+        }
+    }
+
+    public void compact(CatalogContents contents) {
+        //every write already leaves the full catalog in the files, there is nothing to compact
+    }
+
+    public synchronized void writeAll(CatalogContents contents) throws ServiceException {
+        writeFile(allBooksFilepath, contents.getBooks());
+        writeFile(bookReservationFilepath, contents.getReservations());
+    }
+
+    public boolean exists() {
+        return Files.exists(Paths.get(allBooksFilepath)) || Files.exists(Paths.get(bookReservationFilepath));
+    }
+
+    //tells a file watcher whether the file still is exactly as this storage wrote it, so it can skip its own writes
+    public boolean isOwnWrite(Path path) {
+        String writtenStamp = writtenFileStamps.get(path.toAbsolutePath().normalize());
+        return writtenStamp != null && writtenStamp.equals(stampOf(path));
+    }
+
+    private void writeFile(String filepath, Object object) throws ServiceException {
+        Path path = Paths.get(filepath).toAbsolutePath().normalize();
+        writtenFileStamps.remove(path);
+        jsonFileService.writeToFile(filepath, object);
+
+        String stamp = stampOf(path);
+        if (stamp != null) {
+            writtenFileStamps.put(path, stamp);
+        }
+    }
+
+    private static String stampOf(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() + ":" + Files.size(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.exception.ServiceException;
+
+//a storage that keeps the whole catalog in its files, which can be replaced with the given contents at once
+public interface RewritingCatalogStorage extends CatalogStorage {
+
+    void writeAll(CatalogContents contents) throws ServiceException;
+
+    //whether any of the storage's files is there
+    boolean exists();
+}
@@ -0,0 +1,133 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.catalog.CommitQueue;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.JsonFileService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class StorageConfiguration {
+
+    @Bean
+    public JsonCatalogStorage jsonCatalogStorage(JsonFileService jsonFileService,
+                                                 @Value("${storage.path}") String fileStoragePath,
+                                                 @Value("${storage.books.filename}") String allBooksFilename,
+                                                 @Value("${storage.reservations.filename}")
+                                                         String bookReservationFilename) {
+        return new JsonCatalogStorage(jsonFileService,
+                fileStoragePath,
+                allBooksFilename,
+                bookReservationFilename);
+    }
+
+    @Bean
+    public BinaryCatalogStorage binaryCatalogStorage(@Value("${storage.path}") String fileStoragePath,
+                                                     @Value("${storage.binary.filename}") String catalogFilename) {
+        return new BinaryCatalogStorage(fileStoragePath, catalogFilename);
+    }
+
+    //the storage the catalog persists through. A configured conversion of the files is done before it is created
+    @Bean
+    @Primary
+    public CatalogStorage catalogStorage(CatalogConverter catalogConverter,
+                                         JsonFileService jsonFileService,
+                                         JsonCatalogStorage jsonCatalogStorage,
+                                         BinaryCatalogStorage binaryCatalogStorage,
+                                         @Value("${storage.mode}") String storageMode,
+                                         @Value("${storage.format}") String storageFormat,
+                                         @Value("${storage.path}") String fileStoragePath,
+                                         @Value("${storage.journal.filename}")
+                                                 String journalFilename,
+                                         @Value("${storage.journal.compaction.threshold}")
+                                                 int compactionThreshold,
+                                         @Value("${storage.snapshot.enabled}") boolean snapshotsEnabled,
+                                         @Value("${storage.snapshot.directory}") String snapshotDirectory,
+                                         @Value("${storage.snapshot.retained}") int retainedSnapshots,
+                                         @Value("${storage.write.mode}") String writeMode,
+                                         @Value("${storage.write.behind.queue.capacity}") int writeBehindCapacity,
+                                         @Value("${storage.write.behind.delay.millis}") long writeBehindDelayMillis,
+                                         @Value("${storage.write.behind.failures.before.rejecting}")
+                                                 int writeBehindFailuresBeforeRejecting,
+                                         MeterRegistry meterRegistry)
+            throws ServiceException {
+        catalogConverter.convert();
+
+        CatalogStorage storage = createStorage(jsonFileService, jsonCatalogStorage, binaryCatalogStorage, storageMode,
+                storageFormat, fileStoragePath, journalFilename, compactionThreshold, snapshotsEnabled,
+                snapshotDirectory, retainedSnapshots);
+
+        switch (writeMode) {
+            case "direct":
+            case "group-commit":
+                return storage;
+            case "write-behind":
+                //spring calls its close method on shutdown, which writes out the queued commits
+                WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(storage,
+                        writeBehindCapacity, writeBehindDelayMillis, writeBehindFailuresBeforeRejecting);
+                Gauge.builder("storage.write.behind.failing", writeBehindStorage,
+                        failingStorage -> failingStorage.isFailing() ? 1 : 0)
+                        .description("1 while commits are refused because queued changes can't be written")
+                        .register(meterRegistry);
+                return writeBehindStorage;
+            default:
+                throw new IllegalArgumentException("Unknown storage.write.mode " + writeMode);
+        }
+    }
+
+    //group commit is done by the catalog, which writes one group of commits at a time
+    @Bean
+    public CommitQueue commitQueue(@Value("${storage.write.mode}") String writeMode,
+                                   @Value("${storage.write.group.window.millis}") long groupWindowMillis,
+                                   @Value("${storage.write.group.max.commits}") int maxGroupCommits) {
+        if ("group-commit".equals(writeMode)) {
+            return new CommitQueue(groupWindowMillis, maxGroupCommits);
+        }
+
+        return new CommitQueue(0, 1);
+    }
+
+    private CatalogStorage createStorage(JsonFileService jsonFileService,
+                                         JsonCatalogStorage jsonCatalogStorage,
+                                         BinaryCatalogStorage binaryCatalogStorage,
+                                         String storageMode,
+                                         String storageFormat,
+                                         String fileStoragePath,
+                                         String journalFilename,
+                                         int compactionThreshold,
+                                         boolean snapshotsEnabled,
+                                         String snapshotDirectory,
+                                         int retainedSnapshots) {
+        RewritingCatalogStorage fileStorage;
+        switch (storageFormat) {
+            case "json":
+                fileStorage = jsonCatalogStorage;
+                break;
+            case "binary":
+                fileStorage = binaryCatalogStorage;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage.format " + storageFormat);
+        }
+
+        switch (storageMode) {
+            case "rewrite":
+                return fileStorage;
+            case "journal":
+                return new JournalCatalogStorage(jsonFileService,
+                        fileStorage,
+                        fileStoragePath,
+                        journalFilename,
+                        compactionThreshold,
+                        snapshotsEnabled
+                                ? new CatalogSnapshots(fileStoragePath, snapshotDirectory, retainedSnapshots)
+                                : null);
+            default:
+                throw new IllegalArgumentException("Unknown storage.mode " + storageMode);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.service.BookService;
+import com.library.booklibrary.service.JsonFileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//picks up edits made directly to the json files while the application runs. Only the file that changed is parsed
+//again and the catalog applies just the difference, writes made by the application itself are skipped
+@Component
+@ConditionalOnProperty(name = "storage.watch.enabled", havingValue = "true")
+public class StorageFileWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageFileWatcher.class);
+
+    //editors tend to save in several steps, events arriving within this delay are handled together
+    private static final long SETTLE_MILLIS = 200;
+
+    private final BookService bookService;
+
+    private final JsonCatalogStorage jsonCatalogStorage;
+
+    private final JsonFileService jsonFileService;
+
+    private final Path storagePath;
+
+    private final Path allBooksPath;
+
+    private final Path bookReservationPath;
+
+    private final boolean watchable;
+
+    private WatchService watchService;
+
+    public StorageFileWatcher(BookService bookService,
+                              JsonCatalogStorage jsonCatalogStorage,
+                              JsonFileService jsonFileService,
+                              @Value("${storage.mode}") String storageMode,
+                              @Value("${storage.format}") String storageFormat,
+                              @Value("${storage.path}") String fileStoragePath,
+                              @Value("${storage.books.filename}") String allBooksFilename,
+                              @Value("${storage.reservations.filename}") String bookReservationFilename) {
+        this.bookService = bookService;
+        this.jsonCatalogStorage = jsonCatalogStorage;
+        this.jsonFileService = jsonFileService;
+        this.storagePath = Paths.get(fileStoragePath);
+        this.allBooksPath = storagePath.resolve(allBooksFilename);
+        this.bookReservationPath = storagePath.resolve(bookReservationFilename);
+        //in the other modes the json files aren't the whole catalog, so an edit to them can't simply be applied
+        this.watchable = "rewrite".equals(storageMode) && "json".equals(storageFormat);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!watchable) {
+            logger.warn("Storage file watching needs storage.mode=rewrite and storage.format=json, not watching");
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        storagePath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcherThread = new Thread(this::watch, "storage-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                Set<Path> changedPaths = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path) {
+                        changedPaths.add(storagePath.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+
+                if (changedPaths.contains(allBooksPath)) {
+                    reloadBooks();
+                }
+                if (changedPaths.contains(bookReservationPath)) {
+                    reloadReservations();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //the application is shutting down
+        }
+    }
+
+    private void reloadBooks() {
+        if (jsonCatalogStorage.isOwnWrite(allBooksPath)) {
+            return;
+        }
+
+        try {
+            //the file is read only once no commit is being written, so a commit stored after the event isn't undone
+            int changedCount = bookService.syncBooks(() -> {
+                List<Book> books = new ArrayList<>();
+                jsonFileService.readFromFile(allBooksPath.toString(), Book.class, books::add);
+                return books;
+            });
+            logger.info("Reloaded {}, {} books changed", allBooksPath, changedCount);
+        } catch (ServiceException | RuntimeException e) {
+            //most likely the file is still being written, the write that completes it raises another event
+            logger.warn("Could not reload {}. {}", allBooksPath, e.getMessage());
+        }
+    }
+
+    private void reloadReservations() {
+        if (jsonCatalogStorage.isOwnWrite(bookReservationPath)) {
+            return;
+        }
+
+        try {
+            int changedCount = bookService.syncReservations(() -> {
+                List<BookReservation> reservations = new ArrayList<>();
+                jsonFileService.readFromFile(bookReservationPath.toString(), BookReservation.class, reservations::add);
+                return reservations;
+            });
+            logger.info("Reloaded {}, {} reservations changed", bookReservationPath, changedCount);
+        } catch (ServiceException | RuntimeException e) {
+            logger.warn("Could not reload {}. {}", bookReservationPath, e.getMessage());
+        }
+    }
+}
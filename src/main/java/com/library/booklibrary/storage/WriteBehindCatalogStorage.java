@@ -0,0 +1,219 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//hands commits to a background flusher instead of writing them, so requests return once the catalog in memory
+//is updated. The flusher waits the delay for more commits to arrive and stores everything queued by then with a
+//single write. A full queue makes committers wait for the flusher, which bounds how far the files can fall behind.
+//Since a commit has already returned when it is written, a failed write is retried rather than reverted. Once a
+//write has failed too often in a row new commits are refused, so clients stop getting answers that can't be stored,
+//until a retry gets through. They are refused before the catalog applies them: the flusher writes the catalog as it
+//is in memory, so a commit that is applied at all has to be kept
+public class WriteBehindCatalogStorage implements CatalogStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCatalogStorage.class);
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private static final long POLL_MILLIS = 100;
+
+    private final CatalogStorage storage;
+
+    private final BlockingQueue<List<CatalogChange>> queuedCommits;
+
+    private final long delayMillis;
+
+    private final int failuresBeforeRejecting;
+
+    private final Thread flusherThread;
+
+    //released on close, so the flusher stops waiting out the delay. The flusher is never interrupted, an interrupt
+    //would close the file channel of a write in progress
+    private final CountDownLatch closeSignal = new CountDownLatch(1);
+
+    //commits that are queued or being written
+    private int unflushedCount;
+
+    private volatile CatalogContents contents;
+
+    private volatile boolean closed;
+
+    private volatile boolean failing;
+
+    public WriteBehindCatalogStorage(CatalogStorage storage,
+                                     int queueCapacity,
+                                     long delayMillis,
+                                     int failuresBeforeRejecting) {
+        this.storage = storage;
+        this.queuedCommits = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.delayMillis = Math.max(0, delayMillis);
+        this.failuresBeforeRejecting = Math.max(1, failuresBeforeRejecting);
+
+        this.flusherThread = new Thread(this::flushContinuously, "catalog-write-behind");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+    }
+
+    public void loadBooks(Consumer<Book> consumer) throws ServiceException {
+        storage.loadBooks(consumer);
+    }
+
+    public void loadReservations(Consumer<BookReservation> consumer) throws ServiceException {
+        storage.loadReservations(consumer);
+    }
+
+    public void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException {
+        if (closed) {
+            storage.persist(changes, contents);
+            return;
+        }
+
+        //the changes are already applied, so they are queued even if writes started failing since ensureWritable
+        this.contents = contents;
+        synchronized (this) {
+            unflushedCount++;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queuedCommits.put(changes);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void ensureWritable() throws ServiceException {
+        if (failing && !closed) {
+            throw new ServiceException("Catalog changes can't be stored, writing the queued changes keeps failing.");
+        }
+    }
+
+    //the queued commits are written first, so compaction never runs ahead of changes that aren't stored yet
+    public void compact(CatalogContents contents) throws ServiceException {
+        flush();
+        storage.compact(contents);
+    }
+
+    //waits until every commit queued so far is written
+    public synchronized void flush() throws ServiceException {
+        try {
+            while (unflushedCount > 0 && flusherThread.isAlive()) {
+                if (failing) {
+                    throw new ServiceException("Queued catalog changes can't be written, writing them keeps failing.");
+                }
+                wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while waiting for queued catalog changes to be written.");
+        }
+    }
+
+    //called by spring on shutdown. Writes whatever is still queued before the application exits
+    public void close() throws InterruptedException {
+        closed = true;
+        closeSignal.countDown();
+        flusherThread.join(TimeUnit.SECONDS.toMillis(CLOSE_TIMEOUT_SECONDS));
+        if (flusherThread.isAlive()) {
+            logger.error("{} catalog commits could not be written before shutdown", unflushedCount());
+            return;
+        }
+
+        //commits that were queued just as the flusher stopped
+        List<List<CatalogChange>> commits = new ArrayList<>();
+        queuedCommits.drainTo(commits);
+        if (!commits.isEmpty()) {
+            List<CatalogChange> changes = new ArrayList<>();
+            commits.forEach(changes::addAll);
+            try {
+                storage.persist(changes, contents);
+            } catch (ServiceException e) {
+                logger.error("{} catalog commits could not be written before shutdown. {}", commits.size(),
+                        e.getMessage());
+            }
+            commitsFlushed(commits.size());
+        }
+    }
+
+    private void flushContinuously() {
+        while (!closed || !queuedCommits.isEmpty()) {
+            List<List<CatalogChange>> commits = new ArrayList<>();
+            try {
+                List<CatalogChange> firstCommit = queuedCommits.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (firstCommit == null) {
+                    continue;
+                }
+                commits.add(firstCommit);
+                closeSignal.await(delayMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                //nothing interrupts the flusher, the commits taken so far are written as usual
+            }
+            queuedCommits.drainTo(commits);
+
+            List<CatalogChange> changes = new ArrayList<>();
+            commits.forEach(changes::addAll);
+            writeUntilStored(changes);
+            commitsFlushed(commits.size());
+        }
+    }
+
+    //true while new commits are refused because the queued ones can't be written
+    public boolean isFailing() {
+        return failing;
+    }
+
+    //the changes are already visible to clients, so they are retried until the storage takes them
+    private void writeUntilStored(List<CatalogChange> changes) {
+        long retryDelayMillis = 100;
+        int failureCount = 0;
+        while (true) {
+            try {
+                storage.persist(changes, contents);
+                failing = false;
+                return;
+            } catch (ServiceException | RuntimeException e) {
+                failureCount++;
+                if (failureCount >= failuresBeforeRejecting) {
+                    failing = true;
+                }
+                logger.error("Could not write {} queued catalog changes, retrying in {} ms. {}", changes.size(),
+                        retryDelayMillis, e.getMessage());
+            }
+
+            try {
+                Thread.sleep(retryDelayMillis);
+            } catch (InterruptedException e) {
+                //nothing interrupts the flusher, retry right away
+            }
+            retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        }
+    }
+
+    private synchronized int unflushedCount() {
+        return unflushedCount;
+    }
+
+    private synchronized void commitsFlushed(int count) {
+        unflushedCount -= count;
+        notifyAll();
+    }
+}
@@ -0,0 +1,483 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.BookSuggestion;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.mockdata.BookMock;
+import com.library.booklibrary.mockdata.BookReservationMock;
+import com.library.booklibrary.storage.CatalogChange;
+import com.library.booklibrary.storage.CatalogContents;
+import com.library.booklibrary.storage.CatalogStorage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BookCatalogTests {
+
+    private BookCatalog bookCatalog;
+
+    @Mock
+    private CatalogStorage catalogStorage;
+
+    @BeforeEach
+    public void loadBookCatalog() {
+        this.bookCatalog = new BookCatalog(catalogStorage, new CommitQueue(0, 1));
+    }
+
+    @Test
+    public void testFindBooksIntersectsFieldIndexes() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book expectedBook = BookMock.createMockBook();
+        List<Book> returnedList = bookCatalog.findBooks(new BookFilter(null,
+                expectedBook.getAuthor(),
+                expectedBook.getCategory(),
+                " ",
+                expectedBook.getIsbn(),
+                Availability.ANY));
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 6L), guids(returnedList));
+    }
+
+    @Test
+    public void testFindBooksUnknownValueReturnsNothing() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        List<Book> returnedList = bookCatalog.findBooks(new BookFilter(null, "Unknown Author", null, null, null, Availability.ANY));
+
+        Assertions.assertTrue(returnedList.isEmpty());
+    }
+
+    @Test
+    public void testIndexesFollowMutations() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+        newBook.setAuthor("Not Test Author");
+        bookCatalog.addBook(newBook);
+        bookCatalog.removeBook(bookCatalog.findBook(4L));
+
+        Assertions.assertEquals(List.of(8L),
+                guids(bookCatalog.findBooks(new BookFilter(null, "Not Test Author", null, null, null, Availability.ANY))));
+        Assertions.assertNull(bookCatalog.findBook(4L));
+        Assertions.assertTrue(bookCatalog.containsBook(8L));
+    }
+
+    @Test
+    public void testIndexesSurviveSlotCompaction() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        for (long guid = 100; guid < 200; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            bookCatalog.addBook(book);
+        }
+        for (long guid = 100; guid < 200; guid++) {
+            bookCatalog.removeBook(bookCatalog.findBook(guid));
+        }
+
+        Assertions.assertEquals(List.of(1L, 2L, 4L, 5L, 6L, 7L),
+                guids(bookCatalog.findBooks(new BookFilter("Test Book", null, null, null, null, Availability.ANY))));
+        Assertions.assertEquals(7, bookCatalog.getBooks().size());
+    }
+
+    @Test
+    public void testFindBooksScansColumnsOfCommonValues() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        stubReservations(Collections.emptyList());
+
+        for (long guid = 100; guid < 300; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            book.setCategory(guid % 2 == 0 ? "Detective" : "Poetry");
+            book.setLanguage(guid % 3 == 0 ? "German" : "English");
+            bookCatalog.addBook(book);
+        }
+        bookCatalog.removeBook(bookCatalog.findBook(102L));
+        BookReservation reservation = BookReservationMock.createMockBookReservation();
+        reservation.setBookGuid(108L);
+        bookCatalog.addReservation(reservation);
+
+        List<Long> expectedGuids = new ArrayList<>();
+        for (long guid = 102; guid < 300; guid += 6) {
+            if (guid != 102L && guid != 108L) {
+                expectedGuids.add(guid);
+            }
+        }
+        Assertions.assertEquals(expectedGuids,
+                guids(bookCatalog.findBooks(new BookFilter(null, null, "Detective", "German", null,
+                        Availability.ONLY_AVAILABLE))));
+    }
+
+    @Test
+    public void testColumnarValuesAreShared() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book firstBook = BookMock.createMockBook();
+        firstBook.setGuid(100L);
+        firstBook.setLanguage(new String("Lithuanian"));
+        Book secondBook = BookMock.createMockBook();
+        secondBook.setGuid(101L);
+        secondBook.setLanguage(new String("Lithuanian"));
+        bookCatalog.addBook(firstBook);
+        bookCatalog.addBook(secondBook);
+
+        Assertions.assertSame(bookCatalog.findBook(100L).getLanguage(), bookCatalog.findBook(101L).getLanguage());
+    }
+
+    @Test
+    public void testReusedColumnCodesDontMatchRemovedValues() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book removedBook = BookMock.createMockBook();
+        removedBook.setGuid(100L);
+        removedBook.setAuthor("Removed Author");
+        bookCatalog.addBook(removedBook);
+        bookCatalog.removeBook(bookCatalog.findBook(100L));
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(101L);
+        newBook.setAuthor("New Author");
+        bookCatalog.addBook(newBook);
+
+        Assertions.assertTrue(bookCatalog.findBooks(
+                new BookFilter(null, "Removed Author", null, null, null, Availability.ANY)).isEmpty());
+        Assertions.assertEquals(List.of(101L), guids(bookCatalog.findBooks(
+                new BookFilter(null, "New Author", null, null, null, Availability.ANY))));
+    }
+
+    @Test
+    public void testPublicationDatesAreSharedWithoutChangingTheCallersBook() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book firstBook = BookMock.createMockBook();
+        firstBook.setGuid(100L);
+        firstBook.setPublicationDate(LocalDate.of(1990, 5, 17));
+        Book secondBook = BookMock.createMockBook();
+        secondBook.setGuid(101L);
+        LocalDate secondDate = LocalDate.of(1990, 5, 17);
+        secondBook.setPublicationDate(secondDate);
+        bookCatalog.addBook(firstBook);
+        bookCatalog.addBook(secondBook);
+
+        Assertions.assertSame(bookCatalog.findBook(100L).getPublicationDate(),
+                bookCatalog.findBook(101L).getPublicationDate());
+        Assertions.assertNotSame(secondBook, bookCatalog.findBook(101L));
+        Assertions.assertSame(secondDate, secondBook.getPublicationDate());
+    }
+
+    @Test
+    public void testSearchBooksRanksByMatchingWords() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Assertions.assertEquals(List.of(3L, 4L, 1L), guids(bookCatalog.searchBooks("NOT author", 3)));
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+        newBook.setName("Rare-Find");
+        bookCatalog.addBook(newBook);
+        bookCatalog.removeBook(bookCatalog.findBook(3L));
+
+        Assertions.assertEquals(List.of(8L), guids(bookCatalog.searchBooks("rare", 10)));
+        Assertions.assertEquals(List.of(4L, 1L, 2L), guids(bookCatalog.searchBooks("not author", 3)));
+        Assertions.assertTrue(bookCatalog.searchBooks("missing", 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggestValuesCompletesPrefix() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+        newBook.setName("test Driven");
+        bookCatalog.addBook(newBook);
+        bookCatalog.removeBook(bookCatalog.findBook(2L));
+
+        List<BookSuggestion> suggestions = bookCatalog.suggestValues(BookField.NAME, "TEST", 10);
+
+        Assertions.assertEquals(List.of("Test Book", "test Driven"),
+                suggestions.stream().map(BookSuggestion::getValue).collect(Collectors.toList()));
+        Assertions.assertEquals(List.of(1L, 4L, 5L, 6L, 7L), suggestions.get(0).getBookGuids());
+        Assertions.assertEquals(1, bookCatalog.suggestValues(BookField.AUTHOR, "not", 10).size());
+        Assertions.assertEquals(1, bookCatalog.suggestValues(BookField.NAME, "t", 1).size());
+    }
+
+    @Test
+    public void testSuggestValuesCountsBooksAndFollowsRemovedSpellings() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        for (long guid = 100; guid < 120; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            book.setName(guid == 100 ? "test book" : "Test Book");
+            bookCatalog.addBook(book);
+        }
+        for (long guid = 1; guid <= 7; guid++) {
+            if (bookCatalog.containsBook(guid)) {
+                bookCatalog.removeBook(bookCatalog.findBook(guid));
+            }
+        }
+
+        BookSuggestion suggestion = bookCatalog.suggestValues(BookField.NAME, "test", 10).get(0);
+        Assertions.assertEquals("Test Book", suggestion.getValue());
+        Assertions.assertEquals(20, suggestion.getBookCount());
+        Assertions.assertEquals(PrefixIndex.MAX_SUGGESTION_GUIDS, suggestion.getBookGuids().size());
+
+        for (long guid = 101; guid < 120; guid++) {
+            bookCatalog.removeBook(bookCatalog.findBook(guid));
+        }
+        Assertions.assertEquals("test book", bookCatalog.suggestValues(BookField.NAME, "test", 10).get(0).getValue());
+    }
+
+    @Test
+    public void testPollExpiredReservationsSkipsRemovedOnes() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        BookReservation oldestReservation = new BookReservation(2L, "Test Client", LocalDate.now().minusDays(5));
+        BookReservation expiredReservation = new BookReservation(1L, "Test Client", LocalDate.now().minusDays(1));
+        BookReservation currentReservation = new BookReservation(3L, "Test Client", LocalDate.now());
+        stubReservations(List.of(expiredReservation, currentReservation, oldestReservation));
+
+        BookReservation removedReservation = new BookReservation(4L, "Test Client", LocalDate.now().minusDays(2));
+        bookCatalog.addReservation(removedReservation);
+        bookCatalog.commit(List.of(CatalogChange.reservationRemoved(removedReservation)));
+
+        Assertions.assertEquals(List.of(oldestReservation, expiredReservation),
+                bookCatalog.pollExpiredReservations(LocalDate.now()));
+        Assertions.assertTrue(bookCatalog.pollExpiredReservations(LocalDate.now()).isEmpty());
+    }
+
+    @Test
+    public void testFindBooksByAvailability() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        stubReservations(Collections.singletonList(BookReservationMock.createMockBookReservation()));
+
+        BookReservation newReservation = BookReservationMock.createMockBookReservation();
+        newReservation.setBookGuid(4L);
+        bookCatalog.addReservation(newReservation);
+
+        Assertions.assertEquals(List.of(1L, 4L),
+                guids(bookCatalog.findBooks(new BookFilter(null, null, null, null, null, Availability.ONLY_TAKEN))));
+        Assertions.assertEquals(List.of(2L, 3L, 5L, 6L, 7L),
+                guids(bookCatalog.findBooks(new BookFilter(null, null, null, null, null,
+                        Availability.ONLY_AVAILABLE))));
+        Assertions.assertEquals(List.of(2L, 3L, 6L, 7L),
+                guids(bookCatalog.findBooks(new BookFilter(null, null, "Test Category", null, null,
+                        Availability.ONLY_AVAILABLE))));
+    }
+
+    @Test
+    public void testFindBooksPageFollowsGuidOrder() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        for (long guid : new long[]{50L, 10L, 30L}) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            book.setAuthor(guid == 30L ? "Test Author" : "Rare Author");
+            bookCatalog.addBook(book);
+        }
+        bookCatalog.removeBook(bookCatalog.findBook(3L));
+
+        BookFilter allBooks = new BookFilter(null, null, null, null, null, Availability.ANY);
+        Assertions.assertEquals(List.of(1L, 2L, 4L), guids(bookCatalog.findBooksPage(allBooks, null, 3)));
+        Assertions.assertEquals(List.of(10L, 30L), guids(bookCatalog.findBooksPage(allBooks, 7L, 2)));
+        Assertions.assertEquals(List.of(50L), guids(bookCatalog.findBooksPage(allBooks, 30L, 2)));
+        Assertions.assertTrue(bookCatalog.findBooksPage(allBooks, 50L, 2).isEmpty());
+
+        //a common value is paged by walking the guid order, a rare one by sorting its postings
+        BookFilter commonName = new BookFilter("Test Book", null, null, null, null, Availability.ANY);
+        Assertions.assertEquals(List.of(4L, 5L), guids(bookCatalog.findBooksPage(commonName, 2L, 2)));
+        BookFilter rareAuthor = new BookFilter(null, "Rare Author", null, null, null, Availability.ANY);
+        Assertions.assertEquals(List.of(10L), guids(bookCatalog.findBooksPage(rareAuthor, null, 1)));
+        Assertions.assertEquals(List.of(50L), guids(bookCatalog.findBooksPage(rareAuthor, 10L, 1)));
+    }
+
+    @Test
+    public void testSyncBooksAppliesOnlyTheDifference() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        List<Book> editedBooks = BookMock.createMockBookList();
+        editedBooks.removeIf(book -> book.getGuid() == 4L);
+        editedBooks.get(0).setAuthor("Edited Author");
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+        editedBooks.add(newBook);
+        Book unchangedBook = bookCatalog.findBook(2L);
+
+        Assertions.assertEquals(3, bookCatalog.syncBooks(() -> editedBooks));
+        Assertions.assertNull(bookCatalog.findBook(4L));
+        Assertions.assertTrue(bookCatalog.containsBook(8L));
+        Assertions.assertSame(unchangedBook, bookCatalog.findBook(2L));
+        Assertions.assertEquals(List.of(1L),
+                guids(bookCatalog.findBooks(new BookFilter(null, "Edited Author", null, null, null, Availability.ANY))));
+        Assertions.assertEquals(0, bookCatalog.syncBooks(() -> editedBooks));
+        verify(catalogStorage, never()).persist(any(), any());
+    }
+
+    @Test
+    public void testSyncBooksRemovesTheReservationsOfRemovedBooks() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        BookReservation reservation = BookReservationMock.createMockBookReservation();
+        stubReservations(Collections.singletonList(reservation));
+
+        List<Book> editedBooks = BookMock.createMockBookList();
+        editedBooks.removeIf(book -> book.getGuid() == 1L);
+
+        Assertions.assertEquals(1, bookCatalog.syncBooks(() -> editedBooks));
+        Assertions.assertNull(bookCatalog.findBook(1L));
+        Assertions.assertNull(bookCatalog.findReservation(1L));
+        verify(catalogStorage).persist(argThat(changes -> changes.size() == 1
+                && changes.get(0).getType() == CatalogChange.Type.RESERVATION_REMOVED
+                && changes.get(0).getReservation() == reservation), any());
+    }
+
+    @Test
+    public void testSyncReservationsAppliesOnlyTheDifference() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        stubReservations(Collections.singletonList(BookReservationMock.createMockBookReservation()));
+
+        BookReservation editedReservation = BookReservationMock.createMockBookReservation();
+        editedReservation.setBookGuid(3L);
+
+        Assertions.assertEquals(2, bookCatalog.syncReservations(() -> Collections.singletonList(editedReservation)));
+        Assertions.assertNull(bookCatalog.findReservation(1L));
+        Assertions.assertSame(editedReservation, bookCatalog.findReservation(3L));
+        Assertions.assertEquals(List.of(3L),
+                guids(bookCatalog.findBooks(new BookFilter(null, null, null, null, null, Availability.ONLY_TAKEN))));
+    }
+
+    @Test
+    public void testReservationLookupsFollowMutations() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        stubReservations(Collections.singletonList(BookReservationMock.createMockBookReservation()));
+
+        BookReservation newReservation = BookReservationMock.createMockBookReservation();
+        newReservation.setBookGuid(2L);
+        bookCatalog.addReservation(newReservation);
+
+        Assertions.assertEquals(2, bookCatalog.countReservations("Test Client"));
+        Assertions.assertEquals(0, bookCatalog.countReservations("Other Client"));
+        Assertions.assertSame(newReservation, bookCatalog.findReservation(2L));
+        Assertions.assertNull(bookCatalog.findReservation(3L));
+    }
+
+    @Test
+    public void testCommitRevertsChangesRejectedByStorage() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        doThrow(new ServiceException("test exception")).when(catalogStorage).persist(any(), any());
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+
+        Assertions.assertThrows(ServiceException.class, () -> bookCatalog.addBook(newBook));
+        Assertions.assertThrows(ServiceException.class, () -> bookCatalog.removeBook(bookCatalog.findBook(1L)));
+
+        Assertions.assertNull(bookCatalog.findBook(8L));
+        Assertions.assertNotNull(bookCatalog.findBook(1L));
+        Assertions.assertEquals(7, bookCatalog.getBooks().size());
+    }
+
+    @Test
+    public void testCommitLoadsReservationsBeforePersisting() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(8L);
+        bookCatalog.addBook(newBook);
+
+        InOrder inOrder = inOrder(catalogStorage);
+        inOrder.verify(catalogStorage).loadReservations(any());
+        inOrder.verify(catalogStorage).persist(any(), any());
+    }
+
+    @Test
+    public void testWriteNeverIncludesChangesOfAFailingCommit() throws Exception {
+        stubBooks(BookMock.createMockBookList());
+        CountDownLatch failingWriteStarted = new CountDownLatch(1);
+        CountDownLatch failWrite = new CountDownLatch(1);
+        List<Long> writtenGuids = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<CatalogChange> changes = invocation.getArgument(0);
+            if (changes.get(0).getBook().getGuid() == 8L) {
+                failingWriteStarted.countDown();
+                failWrite.await();
+                throw new ServiceException("test exception");
+            }
+            CatalogContents contents = invocation.getArgument(1);
+            writtenGuids.addAll(guids(contents.getBooks()));
+            return null;
+        }).when(catalogStorage).persist(any(), any());
+
+        Book failingBook = BookMock.createMockBook();
+        failingBook.setGuid(8L);
+        Book otherBook = BookMock.createMockBook();
+        otherBook.setGuid(9L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> failingCommit = executor.submit(() -> {
+            bookCatalog.addBook(failingBook);
+            return null;
+        });
+        failingWriteStarted.await();
+        Future<?> otherCommit = executor.submit(() -> {
+            bookCatalog.addBook(otherBook);
+            return null;
+        });
+        Thread.sleep(50);
+        failWrite.countDown();
+        executor.shutdown();
+
+        Assertions.assertThrows(ExecutionException.class, failingCommit::get);
+        otherCommit.get();
+        Assertions.assertTrue(writtenGuids.contains(9L));
+        Assertions.assertFalse(writtenGuids.contains(8L));
+    }
+
+    private void stubBooks(List<Book> books) throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            books.forEach(consumer);
+            return null;
+        }).when(catalogStorage).loadBooks(any());
+    }
+
+    private void stubReservations(List<BookReservation> reservations) throws Exception {
+        doAnswer(invocation -> {
+            Consumer<BookReservation> consumer = invocation.getArgument(0);
+            reservations.forEach(consumer);
+            return null;
+        }).when(catalogStorage).loadReservations(any());
+    }
+
+    private List<Long> guids(List<Book> books) {
+        return books.stream().map(Book::getGuid).collect(Collectors.toList());
+    }
+}
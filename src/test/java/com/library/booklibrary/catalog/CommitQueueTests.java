@@ -0,0 +1,166 @@
+package com.library.booklibrary.catalog;
+
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.mockdata.BookMock;
+import com.library.booklibrary.storage.CatalogChange;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CommitQueueTests {
+
+    private static final int COMMIT_COUNT = 16;
+
+    @Test
+    public void testConcurrentCommitsShareWrites() throws Exception {
+        RecordingWriter recordingWriter = new RecordingWriter(false);
+        CommitQueue commitQueue = new CommitQueue(20, 64);
+
+        List<Future<?>> futures = commitConcurrently(commitQueue, recordingWriter);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        Assertions.assertEquals(COMMIT_COUNT, recordingWriter.writtenChanges.size());
+        Assertions.assertTrue(recordingWriter.writeCount < COMMIT_COUNT);
+        Assertions.assertEquals(1, recordingWriter.maxConcurrentWrites);
+    }
+
+    @Test
+    public void testLoneCommitSkipsTheWindow() throws Exception {
+        RecordingWriter recordingWriter = new RecordingWriter(false);
+        CommitQueue commitQueue = new CommitQueue(60_000, 64);
+
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> commitQueue.commit(
+                Collections.singletonList(CatalogChange.bookCreated(BookMock.createMockBook())), recordingWriter));
+        Assertions.assertEquals(1, recordingWriter.writeCount);
+    }
+
+    @Test
+    public void testSingleCommitsAreWrittenOneAtATime() throws Exception {
+        RecordingWriter recordingWriter = new RecordingWriter(false);
+        CommitQueue commitQueue = new CommitQueue(0, 1);
+
+        List<Future<?>> futures = commitConcurrently(commitQueue, recordingWriter);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        Assertions.assertEquals(COMMIT_COUNT, recordingWriter.writeCount);
+        Assertions.assertEquals(1, recordingWriter.maxConcurrentWrites);
+    }
+
+    @Test
+    public void testFailedWriteFailsEveryCommitOfTheGroup() throws Exception {
+        RecordingWriter recordingWriter = new RecordingWriter(true);
+        CommitQueue commitQueue = new CommitQueue(20, 64);
+
+        List<Future<?>> futures = commitConcurrently(commitQueue, recordingWriter);
+        for (Future<?> future : futures) {
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, future::get);
+            Assertions.assertTrue(exception.getCause() instanceof ServiceException);
+        }
+    }
+
+    @Test
+    public void testRunAloneKeepsCommitsWaiting() throws Exception {
+        RecordingWriter recordingWriter = new RecordingWriter(false);
+        CommitQueue commitQueue = new CommitQueue(0, 1);
+        CountDownLatch actionStarted = new CountDownLatch(1);
+        CountDownLatch finishAction = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> exclusiveAction = executor.submit(() -> {
+            commitQueue.runAlone(() -> {
+                actionStarted.countDown();
+                try {
+                    finishAction.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+            return null;
+        });
+        actionStarted.await();
+        Future<?> commit = executor.submit(() -> {
+            commitQueue.commit(Collections.singletonList(CatalogChange.bookCreated(BookMock.createMockBook())),
+                    recordingWriter);
+            return null;
+        });
+        Thread.sleep(50);
+        Assertions.assertEquals(0, recordingWriter.writeCount);
+
+        finishAction.countDown();
+        exclusiveAction.get();
+        commit.get();
+        executor.shutdown();
+        Assertions.assertEquals(1, recordingWriter.writeCount);
+    }
+
+    private List<Future<?>> commitConcurrently(CommitQueue commitQueue, RecordingWriter recordingWriter) {
+        ExecutorService executor = Executors.newFixedThreadPool(COMMIT_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < COMMIT_COUNT; i++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid((long) i);
+            futures.add(executor.submit(() -> {
+                start.await();
+                commitQueue.commit(Collections.singletonList(CatalogChange.bookCreated(book)), recordingWriter);
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+
+        return futures;
+    }
+
+    //a slow writer, so commits pile up while a group is being written
+    private static class RecordingWriter implements CommitQueue.GroupWriter {
+
+        private final boolean failing;
+
+        private final List<CatalogChange> writtenChanges = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger concurrentWrites = new AtomicInteger();
+
+        private volatile int maxConcurrentWrites;
+
+        private volatile int writeCount;
+
+        private RecordingWriter(boolean failing) {
+            this.failing = failing;
+        }
+
+        public void write(List<CatalogChange> changes) throws ServiceException {
+            maxConcurrentWrites = Math.max(maxConcurrentWrites, concurrentWrites.incrementAndGet());
+            writeCount++;
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentWrites.decrementAndGet();
+            }
+            if (failing) {
+                throw new ServiceException("test exception");
+            }
+            writtenChanges.addAll(changes);
+        }
+    }
+}
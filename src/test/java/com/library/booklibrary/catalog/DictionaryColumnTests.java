@@ -0,0 +1,43 @@
+package com.library.booklibrary.catalog;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DictionaryColumnTests {
+
+    @Test
+    public void testReleasedValuesFreeTheirCodes() {
+        DictionaryColumn column = new DictionaryColumn();
+
+        column.set(0, "German");
+        column.set(1, new String("German"));
+        int germanCode = column.codeOf("German");
+        Assertions.assertEquals(1, column.size());
+
+        column.release(0);
+        Assertions.assertEquals(germanCode, column.codeOf("German"));
+        column.release(1);
+        Assertions.assertEquals(DictionaryColumn.UNKNOWN, column.codeOf("German"));
+        Assertions.assertEquals(0, column.size());
+
+        //the freed code goes to the next new value, and the released ordinals no longer match it
+        column.set(2, "Lithuanian");
+        Assertions.assertEquals(germanCode, column.codeOf("Lithuanian"));
+        Assertions.assertTrue(column.matches(2, germanCode));
+        Assertions.assertFalse(column.matches(0, germanCode));
+    }
+
+    @Test
+    public void testChurnDoesNotGrowTheDictionary() {
+        DictionaryColumn column = new DictionaryColumn();
+
+        for (int i = 0; i < 10_000; i++) {
+            column.set(i % 4, "Author " + i);
+            column.release(i % 4);
+        }
+        column.set(0, "Author");
+
+        Assertions.assertEquals(1, column.size());
+        Assertions.assertTrue(column.codeOf("Author") < 4);
+    }
+}
@@ -0,0 +1,55 @@
+package com.library.booklibrary.catalog;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongIntHashMapTests {
+
+    @Test
+    public void testPutGetRemoveSuccess() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        Assertions.assertEquals(LongIntHashMap.MISSING, map.put(0L, 1));
+        Assertions.assertEquals(LongIntHashMap.MISSING, map.put(42L, 2));
+        Assertions.assertEquals(2, map.put(42L, 3));
+
+        Assertions.assertEquals(1, map.get(0L));
+        Assertions.assertEquals(3, map.get(42L));
+        Assertions.assertEquals(LongIntHashMap.MISSING, map.get(7L));
+        Assertions.assertEquals(2, map.size());
+
+        Assertions.assertEquals(3, map.remove(42L));
+        Assertions.assertEquals(1, map.remove(0L));
+        Assertions.assertEquals(LongIntHashMap.MISSING, map.remove(0L));
+        Assertions.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testMatchesHashMapUnderRandomOperations() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        //a small key range forces long probe chains, growth and removals in the middle of them
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                Assertions.assertEquals(removed == null ? LongIntHashMap.MISSING : removed, map.remove(key));
+            } else {
+                Integer previous = expected.put(key, i);
+                Assertions.assertEquals(previous == null ? LongIntHashMap.MISSING : previous, map.put(key, i));
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 5_000; key++) {
+            Integer value = expected.get(key);
+            Assertions.assertEquals(value == null ? LongIntHashMap.MISSING : value, map.get(key));
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.library.booklibrary.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.library.booklibrary.assertion.BookAssertions;
 import com.library.booklibrary.assertion.BookReservationAssertions;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
 import com.library.booklibrary.entity.BookReservation;
 import com.library.booklibrary.exception.RequestException;
 import com.library.booklibrary.exception.ServiceException;
@@ -30,10 +33,15 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookController.class)
@@ -111,6 +119,66 @@ public class BookControllerTests {
         Assertions.assertEquals(ApplicationError.BOOK_ALREADY_EXISTS.getHttpStatus().toString(), error.getHttpStatus());
     }
 
+    @Test
+    public void testCreateBooksEndpointSuccess() throws Exception {
+        when(bookService.createBooks(any()))
+                .thenAnswer(invocation -> List.of(BatchItemResult.succeeded(0, 1L),
+                        BatchItemResult.failed(1, 1L, ApplicationError.BOOK_DUPLICATED_IN_BATCH)));
+
+        List<Book> requestBooks = List.of(BookMock.createMockBook(), BookMock.createMockBook());
+
+        MvcResult mvcResult = this.mockMvc.perform(post("/v1/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestBooks)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String response = mvcResult.getResponse().getContentAsString();
+        List<BatchItemResult> results = objectMapper.readValue(response,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, BatchItemResult.class));
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+        Assertions.assertFalse(results.get(1).isSuccess());
+        Assertions.assertEquals(ApplicationError.BOOK_DUPLICATED_IN_BATCH.getErrorName(), results.get(1).getErrorName());
+    }
+
+    @Test
+    public void testCreateBooksEndpointServiceException() throws Exception {
+        when(bookService.createBooks(any()))
+                .thenThrow(new ServiceException("Test Exception"));
+
+        testGeneralEndpointException(ApplicationError.SERVICE_UNAVAILABLE,
+                status().isServiceUnavailable(),
+                post("/v1/books/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(BookMock.createMockBook()))));
+    }
+
+    @Test
+    public void testTakeBooksEndpointSuccess() throws Exception {
+        when(bookService.takeBooks(any(), eq(BatchMode.BEST_EFFORT)))
+                .thenAnswer(invocation -> List.of(BatchItemResult.succeeded(0, 1L)));
+
+        List<BookReservation> requestReservations = List.of(BookReservationMock.createMockBookReservation());
+
+        MvcResult mvcResult = this.mockMvc.perform(post("/v1/books/reserve/batch?mode=BEST_EFFORT")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestReservations)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String response = mvcResult.getResponse().getContentAsString();
+        List<BatchItemResult> results = objectMapper.readValue(response,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, BatchItemResult.class));
+
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertTrue(results.get(0).isSuccess());
+    }
+
     @Test
     public void testTakeBookEndpointSuccess() throws Exception {
         when(bookService.takeBook(any(), any()))
@@ -131,6 +199,20 @@ public class BookControllerTests {
         BookReservationAssertions.assertEquals(requestReservation, fetchedReservation);
     }
 
+    @Test
+    public void testReturnBookEndpointReservationDoesntExistException() throws Exception {
+        when(bookService.returnBook(any()))
+                .thenThrow(new RequestException(ApplicationError.RESERVATION_DOESNT_EXIST));
+
+        MvcResult mvcResult = this.mockMvc.perform(delete("/v1/books/1/reserve")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        Assertions.assertTrue(mvcResult.getResponse().getContentAsString()
+                .contains(ApplicationError.RESERVATION_DOESNT_EXIST.getErrorName()));
+    }
+
     @Test
     public void testTakeBookEndpointServiceException() throws Exception {
         when(bookService.takeBook(any(), any()))
@@ -260,6 +342,67 @@ public class BookControllerTests {
         BookAssertions.assertEquals(expectedBook, fetchedList.get(0));
     }
 
+    @Test
+    public void testListAllBooksByFiltersEndpointPageSuccess() throws Exception {
+        when(bookService.listAllBooksByFilter(any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(),
+                eq("previousCursor"), eq(1)))
+                .thenAnswer(invocation -> new BookPage(Collections.singletonList(BookMock.createMockBook()),
+                        "nextCursor"));
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/v1/books?limit=1&cursor=previousCursor")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookController.NEXT_CURSOR_HEADER, "nextCursor"))
+                .andReturn();
+
+        String response = mvcResult.getResponse().getContentAsString();
+        List<Book> fetchedList = objectMapper.readValue(response,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, Book.class));
+
+        Assertions.assertEquals(1, fetchedList.size());
+        BookAssertions.assertEquals(BookMock.createMockBook(), fetchedList.get(0));
+    }
+
+    @Test
+    public void testListAllBooksByFiltersEndpointNdjsonSuccess() throws Exception {
+        Book firstBook = BookMock.createMockBook();
+        Book secondBook = BookMock.createMockBook();
+        secondBook.setGuid(2L);
+        //the listing is fetched page by page from the cursor of the previous page
+        when(bookService.listAllBooksByFilter(any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(),
+                eq(null), any()))
+                .thenAnswer(invocation -> new BookPage(List.of(firstBook), "secondPage"));
+        when(bookService.listAllBooksByFilter(any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(),
+                eq("secondPage"), any()))
+                .thenAnswer(invocation -> new BookPage(List.of(secondBook), null));
+
+        MvcResult asyncResult = this.mockMvc.perform(get("/v1/books")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult mvcResult = this.mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(2, lines.length);
+        BookAssertions.assertEquals(firstBook, objectMapper.readValue(lines[0], Book.class));
+        BookAssertions.assertEquals(secondBook, objectMapper.readValue(lines[1], Book.class));
+    }
+
+    @Test
+    public void testListAllBooksByFiltersEndpointNdjsonCantRequestBothException() throws Exception {
+        when(bookService.listAllBooksByFilter(any(), any(), any(), any(), any(), anyBoolean(), anyBoolean(),
+                any(), any()))
+                .thenThrow(new RequestException(ApplicationError.CANT_REQUEST_BOTH_TAKEN_AND_AVAILABLE));
+
+        testGeneralEndpointException(ApplicationError.CANT_REQUEST_BOTH_TAKEN_AND_AVAILABLE,
+                status().isBadRequest(),
+                get("/v1/books?isOnlyTaken=true&isOnlyAvailable=true")
+                        .accept(MediaType.APPLICATION_NDJSON));
+    }
+
     @Test
     public void testListAllBooksByFiltersEndpointServiceException() throws Exception {
         when(bookService.listAllBooksByFilter(any(), any(), any(), any(), any(), anyBoolean(), anyBoolean()))
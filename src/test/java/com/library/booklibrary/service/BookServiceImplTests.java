@@ -2,18 +2,26 @@ package com.library.booklibrary.service;
 
 import com.library.booklibrary.assertion.BookAssertions;
 import com.library.booklibrary.assertion.BookReservationAssertions;
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.catalog.CommitQueue;
+import com.library.booklibrary.entity.BatchItemResult;
+import com.library.booklibrary.entity.BatchMode;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookPage;
 import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.entity.SuggestionField;
 import com.library.booklibrary.exception.RequestException;
 import com.library.booklibrary.exception.ServiceException;
 import com.library.booklibrary.exception.error.ApplicationError;
 import com.library.booklibrary.mockdata.BookMock;
 import com.library.booklibrary.mockdata.BookReservationMock;
+import com.library.booklibrary.storage.JsonCatalogStorage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -21,9 +29,19 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -38,18 +56,26 @@ public class BookServiceImplTests {
     private JsonFileService jsonFileService;
 
     @BeforeEach
-    public void loadBookService() {
-        this.bookService = new BookServiceImpl(jsonFileService,
+    public void loadBookService() throws Exception {
+        BookCatalog bookCatalog = new BookCatalog(new JsonCatalogStorage(jsonFileService,
                 "book-storage-files",
                 "all-books.json",
-                "book-reservations.json",
-                2,
-                1);
+                "book-reservations.json"),
+                new CommitQueue(0, 1));
+        this.bookService = new BookServiceImpl(bookCatalog, 2, 1);
+
+        //the catalog streams the storage files, hand it the lists each test stubs for readFromFileToList
+        lenient().doAnswer(invocation -> {
+            Consumer<Object> consumer = invocation.getArgument(2);
+            jsonFileService.readFromFileToList(invocation.<String>getArgument(0),
+                    invocation.<Class<Object>>getArgument(1)).forEach(consumer);
+            return null;
+        }).when(jsonFileService).readFromFile(any(), any(), any());
     }
 
     @Test
     public void testCreateBookSuccess() throws Exception {
-        when(jsonFileService.readFromFileToList(any(), any()))
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
                 .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookMock.createMockBook())));
 
         Book requestBook = BookMock.createMockBook();
@@ -82,6 +108,86 @@ public class BookServiceImplTests {
         Assertions.assertEquals(ApplicationError.BOOK_ALREADY_EXISTS.getHttpStatus(), requestException.getHttpStatus());
     }
 
+    @Test
+    public void testCreateBookGuidMissingException() throws Exception {
+        Book requestBook = BookMock.createMockBook();
+        requestBook.setGuid(null);
+
+        RequestException requestException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.createBook(requestBook));
+
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getErrorName(), requestException.getErrorName());
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getHttpStatus(), requestException.getHttpStatus());
+    }
+
+    @Test
+    public void testCreateBooksReportsEveryItemAndWritesOnce() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookMock.createMockBook())));
+
+        Book newBook = BookMock.createMockBook();
+        newBook.setGuid(2L);
+        Book duplicateBook = BookMock.createMockBook();
+        duplicateBook.setGuid(2L);
+        Book guidlessBook = BookMock.createMockBook();
+        guidlessBook.setGuid(null);
+        Book otherBook = BookMock.createMockBook();
+        otherBook.setGuid(3L);
+
+        List<BatchItemResult> results = bookService.createBooks(List.of(newBook,
+                duplicateBook,
+                BookMock.createMockBook(),
+                guidlessBook,
+                otherBook));
+
+        Assertions.assertEquals(List.of(true, false, false, false, true),
+                results.stream().map(BatchItemResult::isSuccess).collect(Collectors.toList()));
+        Assertions.assertEquals(ApplicationError.BOOK_DUPLICATED_IN_BATCH.getErrorName(), results.get(1).getErrorName());
+        Assertions.assertEquals(ApplicationError.BOOK_ALREADY_EXISTS.getErrorName(), results.get(2).getErrorName());
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getErrorName(), results.get(3).getErrorName());
+        Assertions.assertEquals(newBook.getGuid(), bookService.getBookByGuid(2L).getGuid());
+        Assertions.assertEquals(otherBook.getGuid(), bookService.getBookByGuid(3L).getGuid());
+        verify(jsonFileService, times(1)).writeToFile(any(), any());
+    }
+
+    @Test
+    public void testTakeBooksBestEffortStoresValidReservationsOnce() throws Exception {
+        stubBooksWithOneReservation();
+
+        List<BatchItemResult> results = bookService.takeBooks(createConflictingReservations(), BatchMode.BEST_EFFORT);
+
+        Assertions.assertEquals(List.of(true, false, false, false, true),
+                results.stream().map(BatchItemResult::isSuccess).collect(Collectors.toList()));
+        Assertions.assertEquals(ApplicationError.RESERVATION_INVALID_BOOK_ALREADY_TAKEN.getErrorName(),
+                results.get(1).getErrorName());
+        Assertions.assertEquals(ApplicationError.RESERVATION_INVALID_MAX_RESERVATIONS_REACHED.getErrorName(),
+                results.get(2).getErrorName());
+        Assertions.assertEquals(ApplicationError.RESERVATION_INVALID_BOOK_ALREADY_TAKEN.getErrorName(),
+                results.get(3).getErrorName());
+        Assertions.assertEquals(List.of(1L, 2L, 4L),
+                bookService.listAllBooksByFilter(null, null, null, null, null, true, false).stream()
+                        .map(Book::getGuid)
+                        .collect(Collectors.toList()));
+        verify(jsonFileService, times(1)).writeToFile(any(), any());
+    }
+
+    @Test
+    public void testTakeBooksAtomicStoresNothingIfAnyReservationIsInvalid() throws Exception {
+        stubBooksWithOneReservation();
+
+        List<BatchItemResult> results = bookService.takeBooks(createConflictingReservations(), BatchMode.ATOMIC);
+
+        Assertions.assertTrue(results.stream().noneMatch(BatchItemResult::isSuccess));
+        Assertions.assertEquals(ApplicationError.RESERVATION_BATCH_ABORTED.getErrorName(), results.get(0).getErrorName());
+        Assertions.assertEquals(ApplicationError.RESERVATION_INVALID_BOOK_ALREADY_TAKEN.getErrorName(),
+                results.get(1).getErrorName());
+        Assertions.assertEquals(List.of(1L),
+                bookService.listAllBooksByFilter(null, null, null, null, null, true, false).stream()
+                        .map(Book::getGuid)
+                        .collect(Collectors.toList()));
+        verify(jsonFileService, times(0)).writeToFile(any(), any());
+    }
+
     @Test
     public void testTakeBookSuccess() throws Exception {
         when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
@@ -125,8 +231,6 @@ public class BookServiceImplTests {
     public void testTakeBookBookDoesntExistException() throws Exception {
         when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
                 .thenAnswer(invocation -> Collections.singletonList(BookMock.createMockBook()));
-        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
-                .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookReservationMock.createMockBookReservation())));
 
         BookReservation requestReservation = new BookReservation(
                 2L,
@@ -141,6 +245,21 @@ public class BookServiceImplTests {
         Assertions.assertEquals(ApplicationError.BOOK_DOESNT_EXIST.getHttpStatus(), requestException.getHttpStatus());
     }
 
+    @Test
+    public void testTakeBookGuidMissingException() throws Exception {
+        BookReservation requestReservation = new BookReservation(
+                null,
+                "Test Dave",
+                LocalDate.now()
+        );
+
+        RequestException requestException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.takeBook(null, requestReservation));
+
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getErrorName(), requestException.getErrorName());
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getHttpStatus(), requestException.getHttpStatus());
+    }
+
     @Test
     public void testTakeBookBookAlreadyTakenException() throws Exception {
         when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
@@ -157,6 +276,44 @@ public class BookServiceImplTests {
                 requestException.getHttpStatus());
     }
 
+    @Test
+    public void testReturnBookSuccess() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> Collections.singletonList(BookMock.createMockBook()));
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookReservationMock.createMockBookReservation())));
+
+        BookReservation returnedReservation = bookService.returnBook(1L);
+        BookReservation newReservation = bookService.takeBook(1L, BookReservationMock.createMockBookReservation());
+
+        BookReservationAssertions.assertEquals(BookReservationMock.createMockBookReservation(), returnedReservation);
+        BookReservationAssertions.assertEquals(BookReservationMock.createMockBookReservation(), newReservation);
+        verify(jsonFileService, times(2)).writeToFile(any(), any());
+    }
+
+    @Test
+    public void testReturnBookReservationDoesntExistException() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> Collections.singletonList(BookMock.createMockBook()));
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>());
+
+        RequestException requestException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.returnBook(1L));
+
+        Assertions.assertEquals(ApplicationError.RESERVATION_DOESNT_EXIST.getErrorName(),
+                requestException.getErrorName());
+    }
+
+    @Test
+    public void testReturnBookGuidMissingException() throws Exception {
+        RequestException requestException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.returnBook(null));
+
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getErrorName(), requestException.getErrorName());
+        Assertions.assertEquals(ApplicationError.BOOK_GUID_MISSING.getHttpStatus(), requestException.getHttpStatus());
+    }
+
     @Test
     public void testTakeBookExceedsPeriodException() throws Exception {
         when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
@@ -206,6 +363,43 @@ public class BookServiceImplTests {
                 requestException.getHttpStatus());
     }
 
+    @Test
+    public void testTakeBookConcurrentReservationsOfOneBook() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> BookMock.createMockBookList());
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>());
+
+        int clientCount = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(clientCount);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookReservation>> results = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            BookReservation requestReservation = new BookReservation(2L, "Client " + i, LocalDate.now());
+            results.add(executor.submit(() -> {
+                start.await();
+                return bookService.takeBook(2L, requestReservation);
+            }));
+        }
+        start.countDown();
+
+        int successCount = 0;
+        for (Future<BookReservation> result : results) {
+            try {
+                result.get();
+                successCount++;
+            } catch (ExecutionException e) {
+                RequestException requestException = (RequestException) e.getCause();
+                Assertions.assertEquals(ApplicationError.RESERVATION_INVALID_BOOK_ALREADY_TAKEN.getErrorName(),
+                        requestException.getErrorName());
+            }
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(1, successCount);
+        verify(jsonFileService, times(1)).writeToFile(any(), any());
+    }
+
     @Test
     public void testGetBookByGuidSuccess() throws Exception {
         when(jsonFileService.readFromFileToList(any(), any()))
@@ -217,6 +411,17 @@ public class BookServiceImplTests {
         BookAssertions.assertEquals(requestBook, returnedBook);
     }
 
+    @Test
+    public void testGetBookByGuidReadsStorageOnce() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), any()))
+                .thenAnswer(invocation -> Collections.singletonList(BookMock.createMockBook()));
+
+        bookService.getBookByGuid(1L);
+        bookService.getBookByGuid(1L);
+
+        verify(jsonFileService, times(1)).readFromFileToList(any(), any());
+    }
+
     @Test
     public void testGetBookServiceException() throws Exception {
         when(jsonFileService.readFromFileToList(any(), any()))
@@ -263,8 +468,6 @@ public class BookServiceImplTests {
     public void testListAllBooksByFiltersOneParameterSuccess() throws Exception {
         when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
                 .thenAnswer(invocation -> BookMock.createMockBookList());
-        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
-                .thenAnswer(invocation -> Collections.singletonList(BookReservationMock.createMockBookReservation()));
 
         Book expectedBook = BookMock.createMockBook();
         List<Book> returnedList = bookService.listAllBooksByFilter(expectedBook.getName(),
@@ -314,16 +517,104 @@ public class BookServiceImplTests {
                 requestException.getHttpStatus());
     }
 
+    @Test
+    public void testListAllBooksByFiltersPagesFollowCursor() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> BookMock.createMockBookList());
+
+        List<Long> pagedGuids = new ArrayList<>();
+        String cursor = null;
+        do {
+            BookPage page = bookService.listAllBooksByFilter("Test Book", null, null, null, null,
+                    false, false, cursor, 4);
+            page.getBooks().forEach(book -> pagedGuids.add(book.getGuid()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        Assertions.assertEquals(List.of(1L, 2L, 4L, 5L, 6L, 7L), pagedGuids);
+    }
+
+    @Test
+    public void testListAllBooksByFiltersInvalidPageException() throws Exception {
+        RequestException limitException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.listAllBooksByFilter(null, null, null, null, null, false, false, null, 0));
+        RequestException cursorException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.listAllBooksByFilter(null, null, null, null, null, false, false, "not a cursor", 10));
+
+        Assertions.assertEquals(ApplicationError.INVALID_PAGE_LIMIT.getErrorName(), limitException.getErrorName());
+        Assertions.assertEquals(ApplicationError.INVALID_PAGE_CURSOR.getErrorName(), cursorException.getErrorName());
+    }
+
+    @Test
+    public void testSearchBooksInvalidQueryException() throws Exception {
+        RequestException queryException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.searchBooks(" - ", null));
+        RequestException limitException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.searchBooks("test", 1001));
+
+        Assertions.assertEquals(ApplicationError.INVALID_SEARCH_QUERY.getErrorName(), queryException.getErrorName());
+        Assertions.assertEquals(ApplicationError.INVALID_PAGE_LIMIT.getErrorName(), limitException.getErrorName());
+    }
+
+    @Test
+    public void testSuggestBooksEmptyPrefixException() throws Exception {
+        RequestException prefixException = Assertions.assertThrows(RequestException.class,
+                () -> bookService.suggestBooks(" ", SuggestionField.NAME, null));
+
+        Assertions.assertEquals(ApplicationError.INVALID_SUGGESTION_PREFIX.getErrorName(),
+                prefixException.getErrorName());
+    }
+
+    @Test
+    public void testReleaseExpiredReservationsWritesOnce() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> BookMock.createMockBookList());
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>(List.of(
+                        new BookReservation(1L, "Test Client", LocalDate.now().minusDays(3)),
+                        new BookReservation(2L, "Test Client", LocalDate.now().minusDays(1)),
+                        new BookReservation(3L, "Other Client", LocalDate.now()))));
+
+        Assertions.assertEquals(2, bookService.releaseExpiredReservations());
+        Assertions.assertEquals(0, bookService.releaseExpiredReservations());
+
+        verify(jsonFileService, times(1)).writeToFile(any(), any());
+        Assertions.assertEquals(6,
+                bookService.listAllBooksByFilter(null, null, null, null, null, false, true).size());
+    }
+
     @Test
     public void testDeleteBookByGuidSuccess() throws Exception {
-        when(jsonFileService.readFromFileToList(any(), any()))
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
                 .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookMock.createMockBook())));
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>());
 
         bookService.deleteBookByGuid(1L);
 
         verify(jsonFileService, times(1)).writeToFile(any(), any());
     }
 
+    @Test
+    public void testDeleteBookByGuidRemovesItsReservation() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> BookMock.createMockBookList());
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookReservationMock.createMockBookReservation())));
+
+        bookService.deleteBookByGuid(1L);
+
+        InOrder writeOrder = inOrder(jsonFileService);
+        writeOrder.verify(jsonFileService).writeToFile(eq("book-storage-files/book-reservations.json"),
+                eq(Collections.emptyList()));
+        writeOrder.verify(jsonFileService).writeToFile(eq("book-storage-files/all-books.json"), any());
+
+        //the client's reservation is gone, so they can reserve another book right away
+        BookReservation newReservation = BookReservationMock.createMockBookReservation();
+        newReservation.setBookGuid(2L);
+        bookService.takeBook(2L, newReservation);
+    }
+
     @Test
     public void testDeleteBookByGuidServiceException() throws Exception {
         when(jsonFileService.readFromFileToList(any(), any()))
@@ -343,4 +634,21 @@ public class BookServiceImplTests {
         Assertions.assertEquals(ApplicationError.BOOK_DOESNT_EXIST.getErrorName(), requestException.getErrorName());
         Assertions.assertEquals(ApplicationError.BOOK_DOESNT_EXIST.getHttpStatus(), requestException.getHttpStatus());
     }
+
+    private void stubBooksWithOneReservation() throws Exception {
+        when(jsonFileService.readFromFileToList(any(), eq(Book.class)))
+                .thenAnswer(invocation -> BookMock.createMockBookList());
+        when(jsonFileService.readFromFileToList(any(), eq(BookReservation.class)))
+                .thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(BookReservationMock.createMockBookReservation())));
+    }
+
+    //the second reservation takes a book taken earlier in the batch, the third exceeds the client's limit within the
+    //batch and the fourth takes a book that is already reserved
+    private List<BookReservation> createConflictingReservations() {
+        return List.of(new BookReservation(2L, "Test Dave", LocalDate.now()),
+                new BookReservation(2L, "Test Eve", LocalDate.now()),
+                new BookReservation(3L, "Test Dave", LocalDate.now()),
+                new BookReservation(1L, "Test Eve", LocalDate.now()),
+                new BookReservation(4L, "Test Eve", LocalDate.now()));
+    }
 }
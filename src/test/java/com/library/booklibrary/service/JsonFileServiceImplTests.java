@@ -3,6 +3,7 @@ package com.library.booklibrary.service;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.library.booklibrary.assertion.BookAssertions;
 import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.exception.ServiceException;
 import com.library.booklibrary.mockdata.BookMock;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +19,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 @ExtendWith(MockitoExtension.class)
@@ -61,6 +63,20 @@ public class JsonFileServiceImplTests {
         Assertions.assertEquals(receivedOutput, expectedOutput);
     }
 
+    @Test
+    public void testFailedWriteToFileKeepsOldContent() throws Exception {
+        List<Book> testBooks = BookMock.createMockBookList();
+        jsonFileService.writeToFile(testWriteFilePath.toString(), testBooks);
+
+        //an object without properties can't be serialized, so the write fails halfway
+        Assertions.assertThrows(ServiceException.class,
+                () -> jsonFileService.writeToFile(testWriteFilePath.toString(), new Object()));
+
+        List<Book> returnedList = jsonFileService.readFromFileToList(testWriteFilePath.toString(), Book.class);
+        Assertions.assertEquals(returnedList.size(), testBooks.size());
+        BookAssertions.assertEquals(testBooks.get(0), returnedList.get(0));
+    }
+
     @Test
     public void testReadFromFileToListSuccess() throws Exception {
         BufferedWriter writer = new BufferedWriter(new FileWriter(testReadFile));
@@ -77,4 +93,53 @@ public class JsonFileServiceImplTests {
         Assertions.assertEquals(returnedList.size(), 1);
         BookAssertions.assertEquals(expectedBook, returnedList.get(0));
     }
+
+    @Test
+    public void testReadFromFileStreamsElements() throws Exception {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(testReadFile));
+        //This is a List<Book> object, which contains the first two books from BookMock.createMockBookList(), written as a json string
+        String testInput = "[{\"name\":\"Test Book\",\"author\":\"Test Author\",\"category\":\"Test Category\"," +
+                "\"language\":\"Test Language\",\"publicationDate\":[2020,2,12],\"isbn\":\"1234567890123\",\"guid\":1}," +
+                "{\"name\":\"Test Book\",\"author\":\"Test Author\",\"category\":\"Test Category\"," +
+                "\"language\":\"Test Language\",\"publicationDate\":[2020,2,12],\"isbn\":\"1234567890123\",\"guid\":2}]";
+        writer.write(testInput);
+        writer.close();
+
+        List<Book> returnedList = new ArrayList<>();
+        jsonFileService.readFromFile(testReadFilePath.toString(), Book.class, returnedList::add);
+        List<Book> expectedList = BookMock.createMockBookList();
+
+        Assertions.assertEquals(returnedList.size(), 2);
+        BookAssertions.assertEquals(expectedList.get(0), returnedList.get(0));
+        BookAssertions.assertEquals(expectedList.get(1), returnedList.get(1));
+    }
+
+    @Test
+    public void testReadFromFileNotAnArrayException() throws Exception {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(testReadFile));
+        writer.write("{}");
+        writer.close();
+
+        Assertions.assertThrows(ServiceException.class,
+                () -> jsonFileService.readFromFile(testReadFilePath.toString(), Book.class, book -> {
+                }));
+    }
+
+    @Test
+    public void testReadLinesToListDiscardsTornLine() throws Exception {
+        Book testBook = BookMock.createMockBook();
+        jsonFileService.appendLineToFile(testReadFilePath.toString(), testBook);
+
+        BufferedWriter writer = new BufferedWriter(new FileWriter(testReadFile, true));
+        writer.write("{\"name\":\"Torn");
+        writer.close();
+
+        List<Book> returnedList = jsonFileService.readLinesToList(testReadFilePath.toString(), Book.class);
+
+        Assertions.assertEquals(returnedList.size(), 1);
+        BookAssertions.assertEquals(testBook, returnedList.get(0));
+
+        jsonFileService.appendLineToFile(testReadFilePath.toString(), testBook);
+        Assertions.assertEquals(jsonFileService.readLinesToList(testReadFilePath.toString(), Book.class).size(), 2);
+    }
 }
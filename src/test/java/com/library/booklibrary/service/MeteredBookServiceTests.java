@@ -0,0 +1,57 @@
+package com.library.booklibrary.service;
+
+import com.library.booklibrary.exception.RequestException;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.exception.error.ApplicationError;
+import com.library.booklibrary.mockdata.BookMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MeteredBookServiceTests {
+
+    private MeteredBookService meteredBookService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Mock
+    private BookServiceImpl bookService;
+
+    @BeforeEach
+    public void createMeteredBookService() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.meteredBookService = new MeteredBookService(bookService, meterRegistry);
+    }
+
+    @Test
+    public void testOutcomesAreTaggedByApplicationError() throws Exception {
+        when(bookService.getBookByGuid(1L)).thenReturn(BookMock.createMockBook());
+        when(bookService.getBookByGuid(2L)).thenThrow(new RequestException(ApplicationError.BOOK_DOESNT_EXIST));
+        when(bookService.getBookByGuid(3L)).thenThrow(new ServiceException("test exception"));
+
+        meteredBookService.getBookByGuid(1L);
+        Assertions.assertThrows(RequestException.class, () -> meteredBookService.getBookByGuid(2L));
+        Assertions.assertThrows(ServiceException.class, () -> meteredBookService.getBookByGuid(3L));
+
+        Assertions.assertEquals(1, countCalls("SUCCESS"));
+        Assertions.assertEquals(1, countCalls(ApplicationError.BOOK_DOESNT_EXIST.getErrorName()));
+        Assertions.assertEquals(1, countCalls(ApplicationError.SERVICE_UNAVAILABLE.getErrorName()));
+    }
+
+    private long countCalls(String outcome) {
+        return meterRegistry.get("book.service.operation")
+                .tag("operation", "getBookByGuid")
+                .tag("outcome", outcome)
+                .timer()
+                .count();
+    }
+}
@@ -0,0 +1,55 @@
+package com.library.booklibrary.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.mockdata.BookMock;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class MeteredJsonFileServiceTests {
+
+    private MeteredJsonFileService meteredJsonFileService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @TempDir
+    Path tempDirectory;
+
+    @BeforeEach
+    public void createMeteredJsonFileService() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.meteredJsonFileService = new MeteredJsonFileService(
+                new JsonFileServiceImpl(JsonMapper.builder().findAndAddModules().build()),
+                meterRegistry);
+    }
+
+    @Test
+    public void testFileOperationsAreMeasured() throws Exception {
+        String filepath = tempDirectory.resolve("books.json").toString();
+
+        meteredJsonFileService.writeToFile(filepath, BookMock.createMockBookList());
+        meteredJsonFileService.readFromFileToList(filepath, Book.class);
+        Assertions.assertThrows(ServiceException.class,
+                () -> meteredJsonFileService.readFromFileToList(tempDirectory.resolve("missing.json").toString(),
+                        Book.class));
+
+        long fileSize = Files.size(Path.of(filepath));
+        Assertions.assertEquals(fileSize, meterRegistry.get("storage.file.bytes")
+                .tag("file", "books.json").tag("direction", "written").counter().count());
+        Assertions.assertEquals(fileSize, meterRegistry.get("storage.file.bytes")
+                .tag("file", "books.json").tag("direction", "read").counter().count());
+        Assertions.assertEquals(fileSize, meterRegistry.get("storage.file.size")
+                .tag("file", "books.json").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("storage.file.operation")
+                .tag("operation", "read").tag("file", "missing.json").tag("outcome", "failure").timer().count());
+    }
+}
@@ -0,0 +1,124 @@
+package com.library.booklibrary.storage;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.library.booklibrary.assertion.BookAssertions;
+import com.library.booklibrary.assertion.BookReservationAssertions;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.mockdata.BookMock;
+import com.library.booklibrary.mockdata.BookReservationMock;
+import com.library.booklibrary.service.JsonFileServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BinaryCatalogStorageTests {
+
+    private BinaryCatalogStorage binaryStorage;
+
+    @TempDir
+    Path tempDirectory;
+
+    @BeforeEach
+    public void createStorage() {
+        this.binaryStorage = new BinaryCatalogStorage(tempDirectory.toString(), "catalog.bin");
+    }
+
+    @Test
+    public void testWriteAllRoundTrips() throws Exception {
+        List<Book> books = BookMock.createMockBookList();
+        books.get(1).setPublicationDate(null);
+        books.get(2).setName("Ūnicode name");
+        BookReservation reservation = BookReservationMock.createMockBookReservation();
+
+        binaryStorage.writeAll(contents(books, Collections.singletonList(reservation)));
+
+        BinaryCatalogStorage reopenedStorage = new BinaryCatalogStorage(tempDirectory.toString(), "catalog.bin");
+        List<Book> loadedBooks = new ArrayList<>();
+        reopenedStorage.loadBooks(loadedBooks::add);
+        List<BookReservation> loadedReservations = new ArrayList<>();
+        reopenedStorage.loadReservations(loadedReservations::add);
+
+        Assertions.assertEquals(books.size(), loadedBooks.size());
+        for (int i = 0; i < books.size(); i++) {
+            BookAssertions.assertEquals(books.get(i), loadedBooks.get(i));
+        }
+        Assertions.assertEquals(1, loadedReservations.size());
+        BookReservationAssertions.assertEquals(reservation, loadedReservations.get(0));
+    }
+
+    @Test
+    public void testCorruptFileIsRejected() throws Exception {
+        binaryStorage.writeAll(contents(BookMock.createMockBookList(), Collections.emptyList()));
+
+        Path catalogPath = tempDirectory.resolve("catalog.bin");
+        byte[] content = Files.readAllBytes(catalogPath);
+        content[content.length - 1] ^= 1;
+        Files.write(catalogPath, content);
+
+        BinaryCatalogStorage reopenedStorage = new BinaryCatalogStorage(tempDirectory.toString(), "catalog.bin");
+        Assertions.assertThrows(ServiceException.class, () -> reopenedStorage.loadBooks(book -> {
+        }));
+    }
+
+    @Test
+    public void testConverterCopiesJsonToBinary() throws Exception {
+        JsonFileServiceImpl jsonFileService = new JsonFileServiceImpl(JsonMapper.builder().findAndAddModules().build());
+        JsonCatalogStorage jsonStorage = new JsonCatalogStorage(jsonFileService,
+                tempDirectory.toString(),
+                "all-books.json",
+                "book-reservations.json");
+        jsonStorage.writeAll(contents(BookMock.createMockBookList(),
+                Collections.singletonList(BookReservationMock.createMockBookReservation())));
+
+        CatalogConverter.copy(jsonStorage, binaryStorage);
+
+        List<Book> loadedBooks = new ArrayList<>();
+        binaryStorage.loadBooks(loadedBooks::add);
+        List<BookReservation> loadedReservations = new ArrayList<>();
+        binaryStorage.loadReservations(loadedReservations::add);
+        Assertions.assertEquals(BookMock.createMockBookList().size(), loadedBooks.size());
+        Assertions.assertEquals(1, loadedReservations.size());
+    }
+
+    @Test
+    public void testConverterLeavesExistingTargetAlone() throws Exception {
+        JsonFileServiceImpl jsonFileService = new JsonFileServiceImpl(JsonMapper.builder().findAndAddModules().build());
+        JsonCatalogStorage jsonStorage = new JsonCatalogStorage(jsonFileService,
+                tempDirectory.toString(),
+                "all-books.json",
+                "book-reservations.json");
+        jsonStorage.writeAll(contents(BookMock.createMockBookList(), Collections.emptyList()));
+        binaryStorage.writeAll(contents(Collections.singletonList(BookMock.createMockBook()), Collections.emptyList()));
+
+        new CatalogConverter(jsonStorage, binaryStorage, "json-to-binary", false).convert();
+        List<Book> keptBooks = new ArrayList<>();
+        binaryStorage.loadBooks(keptBooks::add);
+        Assertions.assertEquals(1, keptBooks.size());
+
+        new CatalogConverter(jsonStorage, binaryStorage, "json-to-binary", true).convert();
+        List<Book> convertedBooks = new ArrayList<>();
+        binaryStorage.loadBooks(convertedBooks::add);
+        Assertions.assertEquals(BookMock.createMockBookList().size(), convertedBooks.size());
+    }
+
+    private CatalogContents contents(List<Book> books, List<BookReservation> reservations) {
+        return new CatalogContents() {
+            public List<Book> getBooks() {
+                return books;
+            }
+
+            public List<BookReservation> getReservations() {
+                return reservations;
+            }
+        };
+    }
+}
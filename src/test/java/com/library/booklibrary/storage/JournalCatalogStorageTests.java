@@ -0,0 +1,215 @@
+package com.library.booklibrary.storage;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.library.booklibrary.assertion.BookAssertions;
+import com.library.booklibrary.assertion.BookReservationAssertions;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.mockdata.BookMock;
+import com.library.booklibrary.mockdata.BookReservationMock;
+import com.library.booklibrary.service.JsonFileServiceImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class JournalCatalogStorageTests {
+
+    private JsonFileServiceImpl jsonFileService;
+
+    private JournalCatalogStorage journalStorage;
+
+    @TempDir
+    Path tempDirectory;
+
+    @BeforeEach
+    public void createStorage() throws Exception {
+        this.jsonFileService = new JsonFileServiceImpl(JsonMapper.builder().findAndAddModules().build());
+
+        Files.write(tempDirectory.resolve("all-books.json"), Collections.singletonList("[]"));
+        Files.write(tempDirectory.resolve("book-reservations.json"), Collections.singletonList("[]"));
+
+        this.journalStorage = createJournalStorage(3);
+    }
+
+    @Test
+    public void testPersistAppendsToJournalOnly() throws Exception {
+        Book book = BookMock.createMockBook();
+        List<Book> books = Collections.singletonList(book);
+
+        journalStorage.persist(Collections.singletonList(CatalogChange.bookCreated(book)),
+                contents(books, Collections.emptyList()));
+
+        Assertions.assertEquals(0, jsonFileService.readFromFileToList(
+                tempDirectory.resolve("all-books.json").toString(), Book.class).size());
+        Assertions.assertEquals(1, jsonFileService.readLinesToList(
+                tempDirectory.resolve("journal.ndjson").toString(), CatalogJournalEntry.class).size());
+    }
+
+    @Test
+    public void testLoadReplaysJournal() throws Exception {
+        Book firstBook = BookMock.createMockBook();
+        Book secondBook = BookMock.createMockBook();
+        secondBook.setGuid(2L);
+        BookReservation reservation = BookReservationMock.createMockBookReservation();
+
+        journalStorage.persist(Collections.singletonList(CatalogChange.bookCreated(firstBook)),
+                contents(Collections.singletonList(firstBook), Collections.emptyList()));
+        journalStorage.persist(Collections.singletonList(CatalogChange.bookCreated(secondBook)),
+                contents(List.of(firstBook, secondBook), Collections.emptyList()));
+        journalStorage.persist(List.of(CatalogChange.bookDeleted(secondBook),
+                CatalogChange.reservationCreated(reservation)),
+                contents(Collections.singletonList(firstBook), Collections.singletonList(reservation)));
+
+        JournalCatalogStorage reopenedStorage = createJournalStorage(10);
+        List<Book> loadedBooks = new ArrayList<>();
+        reopenedStorage.loadBooks(loadedBooks::add);
+        List<BookReservation> loadedReservations = new ArrayList<>();
+        reopenedStorage.loadReservations(loadedReservations::add);
+
+        Assertions.assertEquals(1, loadedBooks.size());
+        BookAssertions.assertEquals(firstBook, loadedBooks.get(0));
+        Assertions.assertEquals(1, loadedReservations.size());
+        BookReservationAssertions.assertEquals(reservation, loadedReservations.get(0));
+    }
+
+    @Test
+    public void testCompactionRebuildsJsonFiles() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (long guid = 1; guid <= 3; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            books.add(book);
+
+            journalStorage.persist(Collections.singletonList(CatalogChange.bookCreated(book)),
+                    contents(new ArrayList<>(books), Collections.emptyList()));
+        }
+
+        Assertions.assertEquals(3, jsonFileService.readFromFileToList(
+                tempDirectory.resolve("all-books.json").toString(), Book.class).size());
+        Assertions.assertEquals(0, jsonFileService.readLinesToList(
+                tempDirectory.resolve("journal.ndjson").toString(), CatalogJournalEntry.class).size());
+        List<Book> loadedBooks = new ArrayList<>();
+        createJournalStorage(10).loadBooks(loadedBooks::add);
+        Assertions.assertEquals(3, loadedBooks.size());
+    }
+
+    @Test
+    public void testSnapshotCompactionKeepsEntriesForRetainedSnapshots() throws Exception {
+        JournalCatalogStorage snapshotStorage = createSnapshotStorage();
+        List<Book> books = new ArrayList<>();
+        for (long guid = 1; guid <= 3; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            books.add(book);
+
+            snapshotStorage.persist(Collections.singletonList(CatalogChange.bookCreated(book)),
+                    contents(new ArrayList<>(books), Collections.emptyList()));
+            snapshotStorage.compact(contents(new ArrayList<>(books), Collections.emptyList()));
+        }
+
+        try (Stream<Path> snapshotPaths = Files.list(tempDirectory.resolve("snapshots"))) {
+            Assertions.assertEquals(List.of("catalog-00000000000000000002.snapshot",
+                    "catalog-00000000000000000003.snapshot"),
+                    snapshotPaths.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        //the entry after the older retained snapshot stays, so it can still be used if the newest one breaks
+        List<CatalogJournalEntry> journal = jsonFileService.readLinesToList(
+                tempDirectory.resolve("journal.ndjson").toString(), CatalogJournalEntry.class);
+        Assertions.assertEquals(List.of(3L), journal.stream().map(CatalogJournalEntry::getSequence)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testLoadReplaysOnlyEntriesAfterSnapshot() throws Exception {
+        Book firstBook = BookMock.createMockBook();
+        Book secondBook = BookMock.createMockBook();
+        secondBook.setGuid(2L);
+        new CatalogSnapshots(tempDirectory.toString(), "snapshots", 2)
+                .write(contents(Collections.singletonList(firstBook), Collections.emptyList()), 5);
+        //the deletion is already part of the snapshot's history and must not be replayed, the creation is newer
+        jsonFileService.appendLineToFile(tempDirectory.resolve("journal.ndjson").toString(),
+                new CatalogJournalEntry(5, Collections.singletonList(CatalogChange.bookDeleted(firstBook))));
+        jsonFileService.appendLineToFile(tempDirectory.resolve("journal.ndjson").toString(),
+                new CatalogJournalEntry(6, Collections.singletonList(CatalogChange.bookCreated(secondBook))));
+
+        List<Book> loadedBooks = new ArrayList<>();
+        createSnapshotStorage().loadBooks(loadedBooks::add);
+
+        Assertions.assertEquals(List.of(1L, 2L), loadedBooks.stream().map(Book::getGuid)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testLoadFallsBackToOlderSnapshotIfNewestIsCorrupt() throws Exception {
+        JournalCatalogStorage snapshotStorage = createSnapshotStorage();
+        List<Book> books = new ArrayList<>();
+        for (long guid = 1; guid <= 2; guid++) {
+            Book book = BookMock.createMockBook();
+            book.setGuid(guid);
+            books.add(book);
+
+            snapshotStorage.persist(Collections.singletonList(CatalogChange.bookCreated(book)),
+                    contents(new ArrayList<>(books), Collections.emptyList()));
+            snapshotStorage.compact(contents(new ArrayList<>(books), Collections.emptyList()));
+        }
+
+        Path newestSnapshot = tempDirectory.resolve("snapshots/catalog-00000000000000000002.snapshot");
+        byte[] content = Files.readAllBytes(newestSnapshot);
+        content[content.length - 1] ^= 1;
+        Files.write(newestSnapshot, content);
+
+        List<Book> loadedBooks = new ArrayList<>();
+        createSnapshotStorage().loadBooks(loadedBooks::add);
+
+        Assertions.assertEquals(List.of(1L, 2L), loadedBooks.stream().map(Book::getGuid)
+                .collect(Collectors.toList()));
+    }
+
+    private JournalCatalogStorage createSnapshotStorage() {
+        JsonCatalogStorage baseStorage = new JsonCatalogStorage(jsonFileService,
+                tempDirectory.toString(),
+                "all-books.json",
+                "book-reservations.json");
+
+        return new JournalCatalogStorage(jsonFileService,
+                baseStorage,
+                tempDirectory.toString(),
+                "journal.ndjson",
+                100,
+                new CatalogSnapshots(tempDirectory.toString(), "snapshots", 2));
+    }
+
+    private JournalCatalogStorage createJournalStorage(int compactionThreshold) {
+        JsonCatalogStorage baseStorage = new JsonCatalogStorage(jsonFileService,
+                tempDirectory.toString(),
+                "all-books.json",
+                "book-reservations.json");
+
+        return new JournalCatalogStorage(jsonFileService,
+                baseStorage,
+                tempDirectory.toString(),
+                "journal.ndjson",
+                compactionThreshold);
+    }
+
+    private CatalogContents contents(List<Book> books, List<BookReservation> reservations) {
+        return new CatalogContents() {
+            public List<Book> getBooks() {
+                return books;
+            }
+
+            public List<BookReservation> getReservations() {
+                return reservations;
+            }
+        };
+    }
+}
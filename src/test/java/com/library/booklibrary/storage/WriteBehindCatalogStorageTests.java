@@ -0,0 +1,220 @@
+package com.library.booklibrary.storage;
+
+import com.library.booklibrary.catalog.BookCatalog;
+import com.library.booklibrary.catalog.CommitQueue;
+import com.library.booklibrary.entity.Book;
+import com.library.booklibrary.entity.BookReservation;
+import com.library.booklibrary.exception.ServiceException;
+import com.library.booklibrary.mockdata.BookMock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class WriteBehindCatalogStorageTests {
+
+    private static final int COMMIT_COUNT = 16;
+
+    @Test
+    public void testPersistReturnsBeforeTheWrite() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(0);
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 0, 5);
+
+        writeBehindStorage.persist(bookCreated(1L), null);
+        Assertions.assertTrue(blockingStorage.persistedChanges.isEmpty());
+
+        blockingStorage.release.countDown();
+        writeBehindStorage.flush();
+        Assertions.assertEquals(1, blockingStorage.persistedChanges.size());
+        writeBehindStorage.close();
+    }
+
+    @Test
+    public void testQueuedCommitsShareWrites() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(0);
+        blockingStorage.release.countDown();
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 50, 5);
+
+        for (long guid = 0; guid < COMMIT_COUNT; guid++) {
+            writeBehindStorage.persist(bookCreated(guid), null);
+        }
+        writeBehindStorage.close();
+
+        Assertions.assertEquals(COMMIT_COUNT, blockingStorage.persistedChanges.size());
+        Assertions.assertTrue(blockingStorage.writeCount < COMMIT_COUNT);
+    }
+
+    @Test
+    public void testFullQueueMakesCommitsWait() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(0);
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 1, 0, 5);
+
+        //the first commit is taken by the flusher and blocks in the storage, the second fills the queue
+        writeBehindStorage.persist(bookCreated(1L), null);
+        blockingStorage.writeStarted.await(5, TimeUnit.SECONDS);
+        writeBehindStorage.persist(bookCreated(2L), null);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> thirdCommit = executor.submit(() -> {
+            writeBehindStorage.persist(bookCreated(3L), null);
+            return null;
+        });
+        Assertions.assertThrows(TimeoutException.class, () -> thirdCommit.get(200, TimeUnit.MILLISECONDS));
+
+        blockingStorage.release.countDown();
+        thirdCommit.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        writeBehindStorage.close();
+        Assertions.assertEquals(3, blockingStorage.persistedChanges.size());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(2);
+        blockingStorage.release.countDown();
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 0, 5);
+
+        writeBehindStorage.persist(bookCreated(1L), null);
+        writeBehindStorage.flush();
+
+        Assertions.assertEquals(1, blockingStorage.persistedChanges.size());
+        Assertions.assertEquals(3, blockingStorage.writeCount);
+        writeBehindStorage.close();
+    }
+
+    @Test
+    public void testRepeatedlyFailingWritesRejectCommits() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(3);
+        blockingStorage.release.countDown();
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 0, 2);
+
+        writeBehindStorage.persist(bookCreated(1L), null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!writeBehindStorage.isFailing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(writeBehindStorage.isFailing());
+        Assertions.assertThrows(ServiceException.class, writeBehindStorage::ensureWritable);
+
+        //the queued commit is still retried and once it gets through commits are taken again
+        while (writeBehindStorage.isFailing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertFalse(writeBehindStorage.isFailing());
+        writeBehindStorage.ensureWritable();
+        writeBehindStorage.persist(bookCreated(3L), null);
+        writeBehindStorage.close();
+
+        Assertions.assertEquals(2, blockingStorage.persistedChanges.size());
+        Assertions.assertEquals(5, blockingStorage.writeCount);
+    }
+
+    @Test
+    public void testRefusedCommitIsNeverApplied() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(Integer.MAX_VALUE);
+        blockingStorage.release.countDown();
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 0, 1);
+        BookCatalog bookCatalog = new BookCatalog(writeBehindStorage, new CommitQueue(0, 1));
+
+        bookCatalog.addBook(book(1L));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!writeBehindStorage.isFailing() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        //refused before it is applied, so no retry of the queued commit can write it
+        Assertions.assertThrows(ServiceException.class, () -> bookCatalog.addBook(book(2L)));
+        Assertions.assertFalse(bookCatalog.containsBook(2L));
+        Assertions.assertTrue(bookCatalog.containsBook(1L));
+    }
+
+    @Test
+    public void testSyncKeepsQueuedCommits() throws Exception {
+        BlockingStorage blockingStorage = new BlockingStorage(0);
+        blockingStorage.release.countDown();
+        WriteBehindCatalogStorage writeBehindStorage = new WriteBehindCatalogStorage(blockingStorage, 100, 200, 5);
+        BookCatalog bookCatalog = new BookCatalog(writeBehindStorage, new CommitQueue(0, 1));
+
+        //the commit is still queued when the edited file is synced, the file only holds it once it is flushed
+        bookCatalog.addBook(book(1L));
+        Assertions.assertTrue(blockingStorage.storedBooks.isEmpty());
+        bookCatalog.syncBooks(() -> new ArrayList<>(blockingStorage.storedBooks));
+
+        Assertions.assertTrue(bookCatalog.containsBook(1L));
+        writeBehindStorage.close();
+        Assertions.assertEquals(List.of(1L),
+                blockingStorage.storedBooks.stream().map(Book::getGuid).collect(Collectors.toList()));
+    }
+
+    private Book book(Long guid) {
+        Book book = BookMock.createMockBook();
+        book.setGuid(guid);
+        return book;
+    }
+
+    private List<CatalogChange> bookCreated(Long guid) {
+        Book book = BookMock.createMockBook();
+        book.setGuid(guid);
+        return Collections.singletonList(CatalogChange.bookCreated(book));
+    }
+
+    //holds every write until released and fails the given number of writes first
+    private static class BlockingStorage implements CatalogStorage {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+
+        private final List<CatalogChange> persistedChanges = new CopyOnWriteArrayList<>();
+
+        //the books of the last contents written, like a rewritten file
+        private volatile List<Book> storedBooks = Collections.emptyList();
+
+        private int failuresLeft;
+
+        private volatile int writeCount;
+
+        private BlockingStorage(int failures) {
+            this.failuresLeft = failures;
+        }
+
+        public void loadBooks(Consumer<Book> consumer) {
+        }
+
+        public void loadReservations(Consumer<BookReservation> consumer) {
+        }
+
+        public synchronized void persist(List<CatalogChange> changes, CatalogContents contents) throws ServiceException {
+            writeCount++;
+            writeStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new ServiceException("test exception");
+            }
+            persistedChanges.addAll(changes);
+            if (contents != null) {
+                storedBooks = new ArrayList<>(contents.getBooks());
+            }
+        }
+
+        public void compact(CatalogContents contents) {
+        }
+    }
+}